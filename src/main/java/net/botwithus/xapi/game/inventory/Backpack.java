@@ -1,5 +1,6 @@
 package net.botwithus.xapi.game.inventory;
 
+import net.botwithus.rs3.interfaces.Component;
 import net.botwithus.rs3.inventories.Inventory;
 import net.botwithus.rs3.inventories.InventoryManager;
 import net.botwithus.rs3.item.InventoryItem;
@@ -11,6 +12,8 @@ import java.util.function.BiFunction;
 import java.util.regex.Pattern;
 
 public class Backpack {
+    public static int INTERFACE_INDEX = 1473;
+    private static final ItemComponentIndex ITEM_COMPONENTS = new ItemComponentIndex(INTERFACE_INDEX, 93);
 
     /**
      * Retrieves the backpack inventory with ID 93.
@@ -21,6 +24,26 @@ public class Backpack {
         return InventoryManager.getInventory(93);
     }
 
+    /**
+     * Finds the backpack interface component showing the given item.
+     *
+     * @param itemId the item id to look up
+     * @return the component, or null if the item is not shown
+     */
+    public static Component getComponent(int itemId) {
+        return ITEM_COMPONENTS.component(itemId);
+    }
+
+    /**
+     * Finds the backpack interface component showing an item with the given name.
+     *
+     * @param name the exact item name to look up
+     * @return the component, or null if no such item is shown
+     */
+    public static Component getComponent(String name) {
+        return ITEM_COMPONENTS.component(name);
+    }
+
     /**
      * Checks if the backpack is full.
      *
@@ -21,7 +21,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -31,6 +34,7 @@ public class Bank {
     private static final String LAST_PRESET_OPTION = "Load Last Preset from";
     public static int INVENTORY_ID = 95, INTERFACE_INDEX = 517, COMPONENT_INDEX = 202;
     private static final Logger logger = LoggerFactory.getLogger(Bank.class);
+    private static final ItemComponentIndex ITEM_COMPONENTS = new ItemComponentIndex(INTERFACE_INDEX, INVENTORY_ID, 93);
 
 
     private static int previousLoadedPreset = -1;
@@ -46,10 +50,10 @@ public class Bank {
             var objectQuery = SceneObjectQuery.newQuery().name(BANK_NAME_PATTERN).option("Use")
                     .or(SceneObjectQuery.newQuery().name(BANK_NAME_PATTERN).option("Bank"))
                     .or(SceneObjectQuery.newQuery().name("Shantay chest"));
-            var obj = objectQuery.results().nearest();
+            var obj = objectQuery.nearest();
 
             var npcQuery = NpcQuery.newQuery().option("Bank");
-            var npc = npcQuery.results().nearest();
+            var npc = npcQuery.nearest();
             logger.debug("Bank candidates resolved: objectName={}, npcName={}",
                     obj != null ? obj.getName() : "none",
                     npc != null ? npc.getName() : "none");
@@ -128,8 +132,8 @@ public class Bank {
     public static boolean loadLastPreset() {
         logger.debug("Load last preset request");
         var obj = SceneObjectQuery.newQuery()
-                .option(LAST_PRESET_OPTION).results().nearest();
-        var npc = NpcQuery.newQuery().option(LAST_PRESET_OPTION).results().nearest();
+                .option(LAST_PRESET_OPTION).nearest();
+        var npc = NpcQuery.newQuery().option(LAST_PRESET_OPTION).nearest();
         logger.debug("Last preset candidates -> object={}, npc={}",
                 obj != null ? obj.getName() : "none",
                 npc != null ? npc.getName() : "none");
@@ -185,7 +189,7 @@ public class Bank {
      * @return returns the item, or null if not found.
      */
     public static Item first(InventoryItemQuery query) {
-        return query.results().first();
+        return query.first();
     }
 
     /**
@@ -207,13 +211,7 @@ public class Bank {
         }
 
         logger.debug("Bank component interact matched itemId={}, name={}, slot={}", item.getId(), item.getName(), item.getSlot());
-        ResultSet<Component> queryResults = ComponentQuery.newQuery(INTERFACE_INDEX)
-                .id(COMPONENT_INDEX)
-                .itemId(item.getId())
-                .results();
-
-        logger.debug("Bank component interact found {} component candidates", queryResults.size());
-        var component = queryResults.first();
+        var component = ITEM_COMPONENTS.component(item.getId(), COMPONENT_INDEX);
         if (component == null) {
             logger.warn("No bank component found for slot {} itemId {}", slot, item.getId());
             return false;
@@ -235,11 +233,11 @@ public class Bank {
     }
 
     public static boolean contains(String... itemNames) {
-        return !InventoryItemQuery.newQuery(INVENTORY_ID).name(itemNames).results().isEmpty();
+        return InventoryItemQuery.newQuery(INVENTORY_ID).name(itemNames).any();
     }
 
     public static boolean contains(Pattern itemNamePattern) {
-        return !InventoryItemQuery.newQuery(INVENTORY_ID).name(itemNamePattern).results().isEmpty();
+        return InventoryItemQuery.newQuery(INVENTORY_ID).name(itemNamePattern).any();
     }
 
     public static int getCount(String... itemNames) {
@@ -259,7 +257,7 @@ public class Bank {
     public static boolean withdraw(InventoryItemQuery query, int option) {
         logger.debug("Withdraw request -> option={}", option);
         setTransferOption(TransferOptionType.ALL);
-        var item = query.results().first();
+        var item = query.first();
         if (item == null) {
             logger.debug("Withdraw request failed -> no matching item");
             return false;
@@ -368,7 +366,7 @@ public class Bank {
      */
     public static boolean depositEquipment() {
         logger.debug("Deposit equipment request");
-        Component component = ComponentQuery.newQuery(INTERFACE_INDEX).id(42).results().first();
+        Component component = ComponentQuery.newQuery(INTERFACE_INDEX).id(42).first();
         if (component == null) {
             logger.warn("Deposit equipment component not found");
             return false;
@@ -385,7 +383,7 @@ public class Bank {
      */
     public static boolean depositBackpack() {
         logger.debug("Deposit backpack request");
-        Component component = ComponentQuery.newQuery(INTERFACE_INDEX).id(39).results().first();
+        Component component = ComponentQuery.newQuery(INTERFACE_INDEX).id(39).first();
         if (component == null) {
             logger.warn("Deposit backpack component not found");
             return false;
@@ -406,7 +404,7 @@ public class Bank {
      */
     public static boolean deposit(PermissiveScript script, ComponentQuery query, int option) {
         logger.debug("Deposit via component query -> option={}", option);
-        var component = query.results().first();
+        var component = query.first();
         if (component == null) {
             logger.debug("Deposit via component query aborted -> no component match");
             return false;
@@ -417,7 +415,7 @@ public class Bank {
 
     public static boolean depositAll(PermissiveScript script, ComponentQuery query) {
         logger.debug("Deposit-all via component query request");
-        var component = query.results().first();
+        var component = query.first();
         if (component == null) {
             logger.debug("Deposit-all via component query aborted -> no component match");
             return false;
@@ -425,6 +423,38 @@ public class Bank {
         return deposit(script, component, 1);
     }
 
+    /**
+     * Deposits all of the given item, resolving its component through the item component index.
+     */
+    private static boolean depositAllById(PermissiveScript script, int itemId) {
+        var component = ITEM_COMPONENTS.component(itemId);
+        if (component == null) {
+            logger.debug("Deposit-all by id aborted -> no component for itemId={}", itemId);
+            return false;
+        }
+        return deposit(script, component, 1);
+    }
+
+    /**
+     * Collects the ids of the items shown with a deposit option, skipping the protected ones.
+     */
+    private static Set<Integer> depositableItemIds(Predicate<Integer> isProtected) {
+        Set<Integer> items = new HashSet<>();
+        for (int itemId : ITEM_COMPONENTS.itemIds()) {
+            if (isProtected.test(itemId)) {
+                continue;
+            }
+            for (var component : ITEM_COMPONENTS.components(itemId)) {
+                var options = component.getOptions();
+                if (options != null && (options.contains("Deposit-All") || options.contains("Deposit-1"))) {
+                    items.add(itemId);
+                    break;
+                }
+            }
+        }
+        return items;
+    }
+
     public static boolean deposit(PermissiveScript script, Component comp, int option) {
         logger.debug("Deposit component request -> option={}", option);
         setTransferOption(TransferOptionType.ALL);
@@ -449,7 +479,7 @@ public class Bank {
                 .toList();
         logger.debug("Deposit-all by names -> names={}, distinctIds={}", namesDescription, ids.size());
         var results = ids.stream()
-                .map(id -> depositAll(script, ComponentQuery.newQuery(517).itemId(id)))
+                .map(id -> depositAllById(script, id))
                 .toList();
         var success = !results.contains(false);
         logger.debug("Deposit-all by names result -> success={}", success);
@@ -464,7 +494,7 @@ public class Bank {
                 .toList();
         logger.debug("Deposit-all by ids -> requestIds={}, distinctMatches={}", idsDescription, ids.size());
         var results = ids.stream()
-                .map(id -> depositAll(script, ComponentQuery.newQuery(517).itemId(id)))
+                .map(id -> depositAllById(script, id))
                 .toList();
         var success = !results.contains(false);
         logger.debug("Deposit-all by ids result -> success={}", success);
@@ -479,7 +509,7 @@ public class Bank {
                 .toList();
         logger.debug("Deposit-all by patterns -> patterns={}, distinctMatches={}", patternDescription, ids.size());
         var results = ids.stream()
-                .map(id -> depositAll(script, ComponentQuery.newQuery(517).itemId(id)))
+                .map(id -> depositAllById(script, id))
                 .toList();
         var success = !results.contains(false);
         logger.debug("Deposit-all by patterns result -> success={}", success);
@@ -495,12 +525,9 @@ public class Bank {
                 .filter(item -> item.getName() != null && protectedNames.contains(item.getName()))
                 .map(Item::getId)
                 .collect(Collectors.toSet());
-        var items = ComponentQuery.newQuery(517).results().stream().filter(
-                        component -> !protectedIds.contains(component.getItemId()) && (component.getOptions().contains("Deposit-All") || component.getOptions().contains("Deposit-1")))
-                .map(Component::getItemId)
-                .collect(Collectors.toSet());
+        var items = depositableItemIds(protectedIds::contains);
         logger.debug("Deposit-all-except by names -> protectedNames={}, protectedIds={}, candidates={}", protectedNames.size(), protectedIds.size(), items.size());
-        var results = items.stream().map(id -> depositAll(script, ComponentQuery.newQuery(517).itemId(id))).toList();
+        var results = items.stream().map(id -> depositAllById(script, id)).toList();
         var success = !results.contains(false);
         logger.debug("Deposit-all-except by names result -> success={}", success);
         return success;
@@ -508,12 +535,9 @@ public class Bank {
 
     public static boolean depositAllExcept(PermissiveScript script, int... ids) {
         var idSet = Arrays.stream(ids).boxed().collect(Collectors.toSet());
-        var items = ComponentQuery.newQuery(517).results().stream().filter(
-                        i -> !idSet.contains(i.getItemId()) && (i.getOptions().contains("Deposit-All") || i.getOptions().contains("Deposit-1")))
-                .map(Component::getItemId)
-                .collect(Collectors.toSet());
+        var items = depositableItemIds(idSet::contains);
         logger.debug("Deposit-all-except by ids -> protectedIds={}, candidates={}", idSet.size(), items.size());
-        var results = items.stream().map(i -> depositAll(script, ComponentQuery.newQuery(517).itemId(i))).toList();
+        var results = items.stream().map(i -> depositAllById(script, i)).toList();
         var success = !results.contains(false);
         logger.debug("Deposit-all-except by ids result -> success={}", success);
         return success;
@@ -522,12 +546,9 @@ public class Bank {
     public static boolean depositAllExcept(PermissiveScript script, Pattern... patterns) {
         var idMap = Backpack.getItems().stream().filter(i -> i.getName() != null && Arrays.stream(patterns).map(p -> p.matcher(i.getName()).matches()).toList().contains(true))
                 .collect(Collectors.toMap(Item::getId, Item::getName));
-        var items = ComponentQuery.newQuery(517).results().stream().filter(
-                        i -> !idMap.containsKey(i.getItemId()) && (i.getOptions().contains("Deposit-All") || i.getOptions().contains("Deposit-1")))
-                .map(Component::getItemId)
-                .collect(Collectors.toSet());
+        var items = depositableItemIds(idMap::containsKey);
         logger.debug("Deposit-all-except by patterns -> protectedIds={}, candidates={}", idMap.size(), items.size());
-        var results = items.stream().map(i -> depositAll(script, ComponentQuery.newQuery(517).itemId(i))).toList();
+        var results = items.stream().map(i -> depositAllById(script, i)).toList();
         var success = !results.contains(false);
         logger.debug("Deposit-all-except by patterns result -> success={}", success);
         return success;
@@ -542,7 +563,12 @@ public class Bank {
      */
     public static boolean deposit(PermissiveScript script, int itemId, int option) {
         logger.debug("Deposit by id request -> itemId={}, option={}", itemId, option);
-        return deposit(script, ComponentQuery.newQuery(517).itemId(itemId), option);
+        var component = ITEM_COMPONENTS.component(itemId);
+        if (component == null) {
+            logger.debug("Deposit by id aborted -> no component for itemId={}", itemId);
+            return false;
+        }
+        return deposit(script, component, option);
     }
 
     /**
@@ -567,7 +593,12 @@ public class Bank {
      */
     public static boolean deposit(PermissiveScript script, String name, int option) {
         logger.debug("Deposit by name (contentEquals) request -> name={}, option={}", name, option);
-        return deposit(script, name, String::contentEquals, option);
+        var component = ITEM_COMPONENTS.component(name);
+        if (component == null) {
+            logger.debug("Deposit by name aborted -> no component for name={}", name);
+            return false;
+        }
+        return deposit(script, component, option);
     }
 
     /**
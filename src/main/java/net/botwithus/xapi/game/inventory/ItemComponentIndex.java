@@ -0,0 +1,328 @@
+package net.botwithus.xapi.game.inventory;
+
+import net.botwithus.rs3.cache.assets.ConfigManager;
+import net.botwithus.rs3.client.Client;
+import net.botwithus.rs3.interfaces.Component;
+import net.botwithus.rs3.interfaces.Interfaces;
+import net.botwithus.rs3.inventories.events.InventoryEvent;
+import net.botwithus.xapi.query.base.IntSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reverse index from item id and item name to the components displaying that item on one interface.
+ * <p>
+ * Like {@link net.botwithus.xapi.query.base.WorldSnapshot}, the index is scoped to one server tick: it is built
+ * by a single scan of the interface on the first lookup of a tick while the interface is open, so component
+ * wrappers are never reused across ticks. Within the tick it is kept current from {@link InventoryEvent}s of the
+ * backing inventories: the components of the changed slot are re-read and moved to the bucket of their new item.
+ * A miss is answered from the index without scanning again. A hit whose component no longer shows the item
+ * triggers one rebuild, and at most one per tick or inventory event.
+ */
+public final class ItemComponentIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ItemComponentIndex.class);
+    private static final List<ItemComponentIndex> INDEXES = new CopyOnWriteArrayList<>();
+
+    private final int interfaceId;
+    private final IntSet inventoryIds;
+
+    private boolean built;
+    private int builtTick;
+    private boolean rebuiltSinceChange;
+    private final Map<Integer, List<Component>> byItemId = new HashMap<>();
+    private final Map<Integer, List<Component>> bySlot = new HashMap<>();
+    private final Map<Component, Integer> ordinals = new IdentityHashMap<>();
+    private final Map<Component, Integer> shownItems = new IdentityHashMap<>();
+    private Map<String, List<Integer>> byName;
+
+    /**
+     * Creates an index over an interface and registers it for inventory events. Indexes are never unregistered,
+     * so they are only created as constants of the interface classes in this package.
+     *
+     * @param interfaceId interface holding the item components
+     * @param inventoryIds inventories whose changes are shown on the interface
+     */
+    ItemComponentIndex(int interfaceId, int... inventoryIds) {
+        this.interfaceId = interfaceId;
+        this.inventoryIds = IntSet.of(inventoryIds);
+        INDEXES.add(this);
+    }
+
+    /**
+     * Forwards an inventory event to every index showing the changed inventory.
+     *
+     * @param event inventory change
+     */
+    public static void onInventoryEvent(InventoryEvent event) {
+        if (event == null || event.inventory() == null) {
+            return;
+        }
+        int inventoryId = event.inventory().getId();
+        for (var index : INDEXES) {
+            if (index.inventoryIds.contains(inventoryId)) {
+                index.update(event);
+            }
+        }
+    }
+
+    /**
+     * @param itemId item id
+     * @return the first component showing the item, in interface order, or {@code null}
+     */
+    public Component component(int itemId) {
+        var components = components(itemId);
+        return components.isEmpty() ? null : components.get(0);
+    }
+
+    /**
+     * @param itemId item id
+     * @param componentId component id of the item container to look in
+     * @return the first component of the container showing the item, or {@code null}
+     */
+    public Component component(int itemId, int componentId) {
+        for (var component : components(itemId)) {
+            if (component.getComponentId() == componentId) {
+                return component;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param name exact item name
+     * @return the first component showing an item with the name, in interface order, or {@code null}
+     */
+    public Component component(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (int itemId : itemIds(name)) {
+            var component = component(itemId);
+            if (component != null) {
+                return component;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param itemId item id
+     * @return every component showing the item, in interface order
+     */
+    public synchronized List<Component> components(int itemId) {
+        if (!ensureBuilt()) {
+            return Collections.emptyList();
+        }
+        var bucket = byItemId.get(itemId);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        var components = verified(bucket, itemId);
+        if (components == null && !rebuiltSinceChange) {
+            rebuild();
+            rebuiltSinceChange = true;
+            bucket = byItemId.get(itemId);
+            components = bucket != null ? verified(bucket, itemId) : null;
+        }
+        return components == null ? live(bucket, itemId) : components;
+    }
+
+    /**
+     * @return ids of every item shown on the interface
+     */
+    public synchronized int[] itemIds() {
+        if (!ensureBuilt()) {
+            return new int[0];
+        }
+        return byItemId.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @param name exact item name
+     * @return ids of the items shown on the interface with that name
+     */
+    public synchronized int[] itemIds(String name) {
+        if (name == null || !ensureBuilt()) {
+            return new int[0];
+        }
+        if (byName == null) {
+            byName = new HashMap<>();
+            for (int itemId : byItemId.keySet()) {
+                indexName(itemId);
+            }
+        }
+        var candidates = byName.get(normalize(name));
+        if (candidates == null) {
+            return new int[0];
+        }
+        return candidates.stream().filter(id -> name.contentEquals(itemName(id))).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Drops the index; the next lookup rebuilds it.
+     */
+    public synchronized void invalidate() {
+        built = false;
+        byItemId.clear();
+        bySlot.clear();
+        ordinals.clear();
+        shownItems.clear();
+        byName = null;
+    }
+
+    private synchronized void update(InventoryEvent event) {
+        if (!built) {
+            return;
+        }
+        rebuiltSinceChange = false;
+        var newItem = event.newItem();
+        var oldItem = event.oldItem();
+        var slot = bySlot.get(newItem != null ? newItem.getSlot() : oldItem != null ? oldItem.getSlot() : -1);
+        if (slot == null) {
+            invalidate();
+            return;
+        }
+        for (var component : slot) {
+            var previous = shownItems.remove(component);
+            if (previous != null) {
+                var bucket = byItemId.get(previous);
+                bucket.remove(component);
+                if (bucket.isEmpty()) {
+                    byItemId.remove(previous);
+                }
+            }
+            int itemId = component.getItemId();
+            if (itemId > -1) {
+                insert(itemId, component);
+            }
+        }
+    }
+
+    private boolean ensureBuilt() {
+        if (!Interfaces.isOpen(interfaceId)) {
+            if (built) {
+                invalidate();
+            }
+            return false;
+        }
+        if (!built || builtTick != Client.getServerTick()) {
+            rebuild();
+        }
+        return true;
+    }
+
+    private void rebuild() {
+        invalidate();
+        var manager = Interfaces.getInterface(interfaceId);
+        if (manager == null) {
+            return;
+        }
+        List<Component> components = manager.getComponents();
+        Map<Component, Integer> items = new IdentityHashMap<>();
+        List<Integer> containerIds = new ArrayList<>();
+        for (int i = 0; i < components.size(); i++) {
+            var component = components.get(i);
+            if (component == null) {
+                continue;
+            }
+            ordinals.put(component, i);
+            int itemId = component.getItemId();
+            if (itemId > -1) {
+                items.put(component, itemId);
+                containerIds.add(component.getComponentId());
+            }
+        }
+        var containers = IntSet.of(containerIds.stream().mapToInt(Integer::intValue).toArray());
+        for (var component : components) {
+            if (component != null && containers.contains(component.getComponentId())) {
+                bySlot.computeIfAbsent(component.getSubComponentId(), k -> new ArrayList<>(2)).add(component);
+            }
+        }
+        for (var component : components) {
+            var itemId = component != null ? items.get(component) : null;
+            if (itemId != null) {
+                insert(itemId, component);
+            }
+        }
+        built = true;
+        builtTick = Client.getServerTick();
+        rebuiltSinceChange = false;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Item component index rebuilt -> interfaceId={}, items={}, slots={}", interfaceId, byItemId.size(), bySlot.size());
+        }
+    }
+
+    /**
+     * @return the bucket of the item if every entry still shows it, otherwise {@code null}
+     */
+    private static List<Component> verified(List<Component> bucket, int itemId) {
+        for (var component : bucket) {
+            if (component.getItemId() != itemId) {
+                return null;
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(bucket));
+    }
+
+    /**
+     * @return the entries of a bucket that still show the item
+     */
+    private static List<Component> live(List<Component> bucket, int itemId) {
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        List<Component> components = new ArrayList<>(bucket.size());
+        for (var component : bucket) {
+            if (component.getItemId() == itemId) {
+                components.add(component);
+            }
+        }
+        return Collections.unmodifiableList(components);
+    }
+
+    private void insert(int itemId, Component component) {
+        var bucket = byItemId.get(itemId);
+        if (bucket == null) {
+            bucket = new ArrayList<>(2);
+            byItemId.put(itemId, bucket);
+            if (byName != null) {
+                indexName(itemId);
+            }
+        }
+        int ordinal = ordinals.getOrDefault(component, Integer.MAX_VALUE);
+        int position = bucket.size();
+        while (position > 0 && ordinals.getOrDefault(bucket.get(position - 1), Integer.MAX_VALUE) > ordinal) {
+            position--;
+        }
+        bucket.add(position, component);
+        shownItems.put(component, itemId);
+    }
+
+    private void indexName(int itemId) {
+        var name = itemName(itemId);
+        if (name != null) {
+            var ids = byName.computeIfAbsent(normalize(name), k -> new ArrayList<>(1));
+            if (!ids.contains(itemId)) {
+                ids.add(itemId);
+            }
+        }
+    }
+
+    private static String itemName(int itemId) {
+        var type = ConfigManager.getItemProvider().provide(itemId);
+        return type != null ? type.getName() : null;
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
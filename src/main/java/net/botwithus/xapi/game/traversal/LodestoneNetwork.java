@@ -40,7 +40,7 @@ public class LodestoneNetwork {
      */
     public static boolean open() {
         logger.info("Attempting to open the Lodestone network interface");
-        var result = ComponentQuery.newQuery(1465).option("Lodestone network").results().first();
+        var result = ComponentQuery.newQuery(1465).option("Lodestone network").first();
         if (result == null) {
             logger.warn("Unable to locate the Lodestone network component");
             return false;
@@ -138,7 +138,7 @@ public class LodestoneNetwork {
      */
     public static boolean teleportToPreviousDestination() {
         logger.info("Attempting to teleport to the previous destination");
-        var result = ComponentQuery.newQuery(1465).option("Previous Destination").results().first();
+        var result = ComponentQuery.newQuery(1465).option("Previous Destination").first();
         if (result == null) {
             logger.warn("Unable to locate the Previous Destination component");
             return false;
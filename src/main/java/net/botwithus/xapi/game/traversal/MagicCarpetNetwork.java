@@ -20,7 +20,7 @@ public class MagicCarpetNetwork {
      * @return {@code true} if the shop was successfully opened, {@code false} otherwise.
      */
     public static boolean open() {
-        var npc = NpcQuery.newQuery().name("Rug merchant").option("Travel").results().nearest();
+        var npc = NpcQuery.newQuery().name("Rug merchant").option("Travel").nearest();
         return npc != null && npc.interact("Travel") > 0;
     }
 }
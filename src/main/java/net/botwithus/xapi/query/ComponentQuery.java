@@ -5,14 +5,18 @@ import net.botwithus.rs3.interfaces.Component;
 import net.botwithus.rs3.interfaces.ComponentType;
 import net.botwithus.rs3.interfaces.InterfaceManager;
 import net.botwithus.rs3.interfaces.Interfaces;
+import net.botwithus.xapi.query.base.IntSet;
+import net.botwithus.xapi.query.base.NameMatcher;
 import net.botwithus.xapi.query.base.Query;
 import net.botwithus.xapi.query.base.QueryCache;
 import net.botwithus.xapi.query.result.ResultSet;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.Objects;
+import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 
@@ -21,6 +25,7 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     protected Predicate<Component> root;
     private final QueryCache<ResultSet<Component>> cache = new QueryCache<>();
     private int[] ids;
+    private int[] componentIds;
 
     /**
      * Constructs a new ComponentQuery with the specified IDs.
@@ -29,7 +34,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
      */
     public ComponentQuery(int... ids) {
         this.ids = ids;
-        root = t -> Arrays.stream(ids).anyMatch(i -> i == t.getRoot().getInterfaceId());
+        var set = IntSet.of(ids);
+        root = t -> set.contains(t.getRoot().getInterfaceId());
     }
 
     /**
@@ -47,6 +53,11 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
         return this;
     }
 
+    public ComponentQuery withCache(int ticks) {
+        cache.configureTicks(ticks);
+        return this;
+    }
+
     public static ComponentQuery visible(int... interfaceIds) {
         return newQuery(interfaceIds).hidden(false);
     }
@@ -56,7 +67,7 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
                 .id(componentId)
                 .hidden(false)
                 .type(ComponentType.BUTTON)
-                .text((needle, haystack) -> haystack != null && needle.equalsIgnoreCase(haystack.toString()), text);
+                .text(NameMatcher.EQUALS_IGNORE_CASE, text);
     }
 
     /**
@@ -73,7 +84,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     }
 
     /**
-     * Filters components by ID.
+     * Filters components by ID. The query then resolves only these components and their children through
+     * {@link Interfaces#getComponent(int, int)} instead of reading every component of the interface.
      *
      * @param ids the IDs to filter by
      * @return the updated ComponentQuery
@@ -81,7 +93,10 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery id(int... ids) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(ids).anyMatch(i -> i == t.getComponentId()));
+        var set = IntSet.of(ids);
+        this.root = this.root.and(t -> set.contains(t.getComponentId()));
+        var sorted = Arrays.stream(ids).distinct().sorted();
+        componentIds = componentIds == null ? sorted.toArray() : sorted.filter(IntSet.of(componentIds)::contains).toArray();
         return this;
     }
 
@@ -94,7 +109,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery subComponentId(int... ids) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(ids).anyMatch(i -> i == t.getSubComponentId()));
+        var set = IntSet.of(ids);
+        this.root = this.root.and(t -> set.contains(t.getSubComponentId()));
         return this;
     }
 
@@ -120,7 +136,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery properties(int... properties) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(properties).anyMatch(i -> i == t.getProperties()));
+        var set = IntSet.of(properties);
+        this.root = this.root.and(t -> set.contains(t.getProperties()));
         return this;
     }
 
@@ -133,7 +150,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery fontId(int... fontIds) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(fontIds).anyMatch(i -> i == t.getFontId()));
+        var set = IntSet.of(fontIds);
+        this.root = this.root.and(t -> set.contains(t.getFontId()));
         return this;
     }
 
@@ -146,7 +164,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery color(int... colors) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(colors).anyMatch(i -> i == t.getColor()));
+        var set = IntSet.of(colors);
+        this.root = this.root.and(t -> set.contains(t.getColor()));
         return this;
     }
 
@@ -159,7 +178,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery alpha(int... alphas) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(alphas).anyMatch(i -> i == t.getAlpha()));
+        var set = IntSet.of(alphas);
+        this.root = this.root.and(t -> set.contains(t.getAlpha()));
         return this;
     }
 
@@ -172,7 +192,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery itemId(int... itemIds) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(itemIds).anyMatch(i -> i == t.getItemId()));
+        var set = IntSet.of(itemIds);
+        this.root = this.root.and(t -> set.contains(t.getItemId()));
         return this;
     }
 
@@ -212,7 +233,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery itemAmount(int... amounts) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(amounts).anyMatch(i -> i == t.getItemAmount()));
+        var set = IntSet.of(amounts);
+        this.root = this.root.and(t -> set.contains(t.getItemAmount()));
         return this;
     }
 
@@ -225,7 +247,8 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery spriteId(int... spriteIds) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(spriteIds).anyMatch(i -> i == t.getSpriteId()));
+        var set = IntSet.of(spriteIds);
+        this.root = this.root.and(t -> set.contains(t.getSpriteId()));
         return this;
     }
 
@@ -239,7 +262,12 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery text(BiFunction<String, CharSequence, Boolean> spred, String... text) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(text).anyMatch(i -> spred.apply(i, t.getText())));
+        var matcher = NameMatcher.of(spred, text);
+        if (matcher != null) {
+            this.root = this.root.and(t -> matcher.test(t.getText()));
+        } else {
+            this.root = this.root.and(t -> Arrays.stream(text).anyMatch(i -> spred.apply(i, t.getText())));
+        }
         return this;
     }
 
@@ -253,7 +281,12 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery optionBasedText(BiFunction<String, CharSequence, Boolean> spred, String... text) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(text).anyMatch(i -> spred.apply(i, t.getOptionBase())));
+        var matcher = NameMatcher.of(spred, text);
+        if (matcher != null) {
+            this.root = this.root.and(t -> matcher.test(t.getOptionBase()));
+        } else {
+            this.root = this.root.and(t -> Arrays.stream(text).anyMatch(i -> spred.apply(i, t.getOptionBase())));
+        }
         return this;
     }
 
@@ -267,6 +300,11 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery option(BiFunction<String, CharSequence, Boolean> spred, String... option) {
         invalidateCache();
 
+        var matcher = NameMatcher.of(spred, option);
+        if (matcher != null) {
+            this.root = this.root.and(t -> matcher.anyMatch(t.getOptions()));
+            return this;
+        }
         this.root = this.root.and(t -> {
             var options = t.getOptions();
             return options != null && Arrays.stream(option).anyMatch(i -> i != null && options.stream().anyMatch(j -> j != null && spred.apply(i, j)));
@@ -281,7 +319,7 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
      * @return the updated ComponentQuery
      */
     public ComponentQuery option(String... option) {
-        return option(String::contentEquals, option);
+        return option(NameMatcher.EQUALS, option);
     }
 
     /**
@@ -306,7 +344,16 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
     public ComponentQuery children(int... ids) {
         invalidateCache();
 
-        this.root = this.root.and(t -> Arrays.stream(ids).anyMatch(i -> t.getChildren().stream().anyMatch(j -> j.getComponentId() == i)));
+        var set = IntSet.of(ids);
+        this.root = this.root.and(t -> {
+            var children = t.getChildren();
+            for (int i = 0; i < children.size(); i++) {
+                if (set.contains(children.get(i).getComponentId())) {
+                    return true;
+                }
+            }
+            return false;
+        });
         return this;
     }
 
@@ -317,14 +364,48 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
      */
     @Override
     public ResultSet<Component> results() {
-        return cache.getOrCompute(() -> new ResultSet<>(
-                Arrays.stream(ids)
-                        .mapToObj(Interfaces::getInterface) // Map IDs to Interfaces
-                        .filter(Objects::nonNull) // Filter out null interfaces
-                        .flatMap(interfaceManager -> interfaceManager.getComponents().stream()) // Flatten components
-                        .filter(this) // Apply the predicate (root.test)
-                        .toList() // Collect the filtered components into a list
-        ));
+        return cache.getOrCompute(() -> {
+            List<Component> matches = new ArrayList<>();
+            for (int id : ids) {
+                for (var component : candidates(id, componentIds)) {
+                    if (test(component)) {
+                        matches.add(component);
+                    }
+                }
+            }
+            return new ResultSet<>(Collections.unmodifiableList(matches));
+        });
+    }
+
+    @Override
+    public Component first() {
+        if (cache.isEnabled()) {
+            return results().first();
+        }
+        for (int id : ids) {
+            for (var component : candidates(id, componentIds)) {
+                if (test(component)) {
+                    return component;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int count() {
+        if (cache.isEnabled()) {
+            return results().size();
+        }
+        int count = 0;
+        for (int id : ids) {
+            for (var component : candidates(id, componentIds)) {
+                if (test(component)) {
+                    count++;
+                }
+            }
+        }
+        return count;
     }
 
     /**
@@ -348,6 +429,39 @@ public class ComponentQuery implements Query<Component, ResultSet<Component>> {
         return this.root.test(comp);
     }
 
+    /**
+     * Reads the components of an interface from the client. Interfaces open and close between queries of the same
+     * tick, so components are never reused from an earlier query. When the query is narrowed to component ids, only
+     * those components and their children are resolved.
+     */
+    private static List<Component> candidates(int interfaceId, int[] componentIds) {
+        if (componentIds != null) {
+            List<Component> components = new ArrayList<>();
+            for (int componentId : componentIds) {
+                var component = Interfaces.getComponent(interfaceId, componentId);
+                if (component == null) {
+                    continue;
+                }
+                components.add(component);
+                var children = component.getChildren();
+                if (children != null) {
+                    for (var child : children) {
+                        if (child != null) {
+                            components.add(child);
+                        }
+                    }
+                }
+            }
+            return components;
+        }
+        var interfaceManager = Interfaces.getInterface(interfaceId);
+        if (interfaceManager == null) {
+            return Collections.emptyList();
+        }
+        var components = interfaceManager.getComponents();
+        return components != null ? components : Collections.emptyList();
+    }
+
     private void invalidateCache() {
         cache.invalidate();
     }
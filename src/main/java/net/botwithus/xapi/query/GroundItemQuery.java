@@ -2,13 +2,17 @@ package net.botwithus.xapi.query;
 
 import net.botwithus.rs3.cache.assets.items.ItemDefinition;
 import net.botwithus.rs3.cache.assets.items.StackType;
+import net.botwithus.rs3.entities.LocalPlayer;
 import net.botwithus.rs3.item.GroundItem;
 import net.botwithus.rs3.world.Area;
 import net.botwithus.rs3.world.Coordinate;
 import net.botwithus.rs3.world.Distance;
-import net.botwithus.rs3.world.World;
+import net.botwithus.xapi.query.base.IntSet;
+import net.botwithus.xapi.query.base.NameMatcher;
+import net.botwithus.xapi.query.base.ParallelFilter;
 import net.botwithus.xapi.query.base.Query;
 import net.botwithus.xapi.query.base.QueryCache;
+import net.botwithus.xapi.query.base.WorldSnapshot;
 import net.botwithus.xapi.query.result.GroundItemResultSet;
 import net.botwithus.xapi.query.result.ResultSet;
 import org.jetbrains.annotations.NotNull;
@@ -16,6 +20,7 @@ import org.jetbrains.annotations.NotNull;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 
@@ -26,6 +31,8 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
 
     protected Predicate<GroundItem> root;
     private final QueryCache<GroundItemResultSet> cache = new QueryCache<>();
+    private double distanceBound = Double.NaN;
+    private int parallelThreshold;
 
     /**
      * Constructs a new GroundItemQuery with a default predicate.
@@ -49,6 +56,11 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
         return this;
     }
 
+    public GroundItemQuery withCache(int ticks) {
+        cache.configureTicks(ticks);
+        return this;
+    }
+
     public static GroundItemQuery lootable(int... ids) {
         return newQuery().valid(true).id(ids);
     }
@@ -64,14 +76,100 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
      */
     @Override
     public GroundItemResultSet results() {
-        return cache.getOrCompute(() -> new GroundItemResultSet(World.getGroundItems().stream()
-                .flatMap(itemStack -> itemStack.getItems().stream())
-                .filter(this)
-                .toList()));
+        return cache.getOrCompute(() -> new GroundItemResultSet(
+                ParallelFilter.filter(scan(WorldSnapshot.current()), this, parallelThreshold)));
     }
 
+    /**
+     * Evaluates {@link #results()} on the fork-join pool once at least {@link ParallelFilter#DEFAULT_THRESHOLD}
+     * ground items are scanned. Filters must be safe to call off the script thread.
+     *
+     * @return this query
+     */
+    public GroundItemQuery parallel() {
+        return parallel(ParallelFilter.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Evaluates {@link #results()} on the fork-join pool once at least {@code threshold} ground items are scanned.
+     * Results keep the snapshot order either way.
+     *
+     * @param threshold minimum scanned item count, zero or less to always filter sequentially
+     * @return this query
+     */
+    public GroundItemQuery parallel(int threshold) {
+        parallelThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Finds the matching ground item nearest to the local player within the given distance, searching the
+     * spatial index outward instead of filtering every ground item first. When a cache is configured through
+     * {@code withCache}, the nearest item is picked from the cached {@link #results()} instead, like
+     * {@link #first()} and {@link #count()} do.
+     *
+     * @param maxDistance maximum allowed distance
+     * @return nearest matching ground item, or {@code null}
+     */
     public GroundItem nearestWithin(double maxDistance) {
-        return results().nearestWithin(maxDistance);
+        if (cache.isEnabled()) {
+            return results().nearestWithin(maxDistance);
+        }
+        var player = LocalPlayer.self();
+        if (player == null || player.getCoordinate() == null) {
+            return null;
+        }
+        return WorldSnapshot.current().groundItemIndex().nearest(player.getCoordinate(), maxDistance, this);
+    }
+
+    /**
+     * Finds the matching ground item nearest to the local player.
+     *
+     * @return nearest matching ground item, or {@code null}
+     */
+    public GroundItem nearest() {
+        return nearestWithin(Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public GroundItem first() {
+        if (cache.isEnabled()) {
+            return results().first();
+        }
+        for (var item : scan(WorldSnapshot.current())) {
+            if (test(item)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int count() {
+        if (cache.isEnabled()) {
+            return results().size();
+        }
+        int count = 0;
+        for (var item : scan(WorldSnapshot.current())) {
+            if (test(item)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the ground items the predicate should run over, limited to the spatial index neighbourhood of
+     * the local player when every result is bounded by {@link #distance(double)}.
+     */
+    private List<GroundItem> scan(WorldSnapshot snapshot) {
+        if (!Double.isNaN(distanceBound)) {
+            var player = LocalPlayer.self();
+            if (player != null && player.getCoordinate() != null) {
+                return snapshot.groundItemIndex().near(player.getCoordinate(), distanceBound);
+            }
+        }
+        return snapshot.groundItems();
     }
 
     /**
@@ -113,7 +211,8 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
             return this;
         }
         invalidateCache();
-        this.root = this.root.and(i -> Arrays.stream(ids).anyMatch(id -> id == i.getId()));
+        var set = IntSet.of(ids);
+        this.root = this.root.and(i -> set.contains(i.getId()));
         return this;
     }
 
@@ -166,14 +265,15 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
             return this;
         }
         invalidateCache();
-        this.root = this.root.and(i -> Arrays.stream(categories).anyMatch(category -> category == i.getCategory()));
+        var set = IntSet.of(categories);
+        this.root = this.root.and(i -> set.contains(i.getCategory()));
         return this;
     }
 
     /**
      * Filters ground items by name using a predicate.
      *
-     * @param spred the predicate to match names
+     * @param spred the predicate to match names, called as {@code (item name, needle)}
      * @param names the names to filter by
      * @return the updated GroundItemQuery
      */
@@ -182,7 +282,12 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
             return this;
         }
         invalidateCache();
-        this.root = this.root.and(i -> Arrays.stream(names).anyMatch(name -> spred.apply(i.getName(), name)));
+        var matcher = NameMatcher.ofCandidateFirst(spred, names);
+        if (matcher != null) {
+            this.root = this.root.and(i -> matcher.test(i.getName()));
+        } else {
+            this.root = this.root.and(i -> Arrays.stream(names).anyMatch(name -> spred.apply(i.getName(), name)));
+        }
         return this;
     }
 
@@ -193,7 +298,7 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
      * @return the updated GroundItemQuery
      */
     public GroundItemQuery name(String... names) {
-        return name(String::contentEquals, names);
+        return name(NameMatcher.EQUALS, names);
     }
 
     /**
@@ -278,6 +383,7 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
      */
     public GroundItemQuery distance(double distance) {
         invalidateCache();
+        distanceBound = Double.isNaN(distanceBound) ? distance : Math.min(distanceBound, distance);
         this.root = this.root.and(i -> Distance.to(i.getStack().getCoordinate()) <= distance);
         return this;
     }
@@ -305,6 +411,9 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
     public GroundItemQuery and(GroundItemQuery other) {
         invalidateCache();
         this.root = this.root.and(other.root);
+        if (!Double.isNaN(other.distanceBound)) {
+            distanceBound = Double.isNaN(distanceBound) ? other.distanceBound : Math.min(distanceBound, other.distanceBound);
+        }
         return this;
     }
 
@@ -317,6 +426,8 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
     public GroundItemQuery or(GroundItemQuery other) {
         invalidateCache();
         this.root = this.root.or(other.root);
+        distanceBound = Double.isNaN(distanceBound) || Double.isNaN(other.distanceBound)
+                ? Double.NaN : Math.max(distanceBound, other.distanceBound);
         return this;
     }
 
@@ -328,6 +439,7 @@ public class GroundItemQuery implements Query<GroundItem, ResultSet<GroundItem>>
     public GroundItemQuery invert() {
         invalidateCache();
         this.root = this.root.negate();
+        distanceBound = Double.NaN;
         return this;
     }
 
@@ -1,13 +1,18 @@
 package net.botwithus.xapi.query;
 
+import net.botwithus.rs3.inventories.events.InventoryEvent;
 import net.botwithus.rs3.item.InventoryItem;
+import net.botwithus.xapi.query.base.IntSet;
 import net.botwithus.xapi.query.base.ItemQuery;
 import net.botwithus.xapi.query.base.QueryCache;
+import net.botwithus.xapi.query.base.QueryDelta;
+import net.botwithus.xapi.query.base.QuerySubscription;
 import net.botwithus.xapi.query.result.ResultSet;
 
 import java.time.Duration;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.function.Consumer;
 
 public class InventoryItemQuery extends ItemQuery<InventoryItem, InventoryItemQuery> {
 
@@ -31,6 +36,12 @@ public class InventoryItemQuery extends ItemQuery<InventoryItem, InventoryItemQu
         return this;
     }
 
+    public InventoryItemQuery withCache(int ticks) {
+        cache.configureTicks(ticks);
+        inventoryQuery.withCache(ticks);
+        return this;
+    }
+
     @Override
     public ResultSet<InventoryItem> results() {
         return cache.getOrCompute(() -> {
@@ -42,6 +53,32 @@ public class InventoryItemQuery extends ItemQuery<InventoryItem, InventoryItemQu
         });
     }
 
+    @Override
+    public InventoryItem first() {
+        if (cache.isEnabled()) {
+            return results().first();
+        }
+        var inventory = inventoryQuery.first();
+        if (inventory == null) {
+            return null;
+        }
+        for (var item : inventory.getItems()) {
+            if (test(item)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Subscribes to the items of the queried inventory. Instead of re-running the query every tick, the
+     * subscription is patched from the {@link InventoryEvent} of each changed slot.
+     */
+    @Override
+    public QuerySubscription<InventoryItem> subscribe(Consumer<QueryDelta<InventoryItem>> listener) {
+        return InventorySubscription.open(this, listener);
+    }
+
     @Override
     public Iterator<InventoryItem> iterator() {
         return results().iterator();
@@ -62,8 +99,36 @@ public class InventoryItemQuery extends ItemQuery<InventoryItem, InventoryItemQu
         if (slots.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> java.util.Arrays.stream(slots).anyMatch(i -> i == t.getSlot()));
+        var set = IntSet.of(slots);
+        this.root = this.root.and(t -> set.contains(t.getSlot()));
         predicateChanged();
         return this;
     }
+
+    private static final class InventorySubscription extends QuerySubscription<InventoryItem> {
+        private final InventoryQuery inventoryQuery;
+
+        private InventorySubscription(InventoryItemQuery query, Consumer<QueryDelta<InventoryItem>> listener) {
+            super(query, listener);
+            this.inventoryQuery = query.inventoryQuery;
+        }
+
+        private static InventorySubscription open(InventoryItemQuery query, Consumer<QueryDelta<InventoryItem>> listener) {
+            return start(new InventorySubscription(query, listener));
+        }
+
+        @Override
+        protected void onTick(int tick) {
+            // driven by inventory events
+        }
+
+        @Override
+        protected void onInventoryEvent(InventoryEvent event) {
+            var inventory = inventoryQuery.first();
+            if (inventory == null || event.inventory() == null || inventory.getId() != event.inventory().getId()) {
+                return;
+            }
+            apply(event.oldItem(), event.newItem());
+        }
+    }
 }
@@ -4,6 +4,8 @@ import net.botwithus.rs3.cache.assets.inventories.InventoryDefinition;
 import net.botwithus.rs3.inventories.Inventory;
 import net.botwithus.rs3.inventories.InventoryManager;
 import net.botwithus.rs3.item.Item;
+import net.botwithus.xapi.query.base.IntSet;
+import net.botwithus.xapi.query.base.NameMatcher;
 import net.botwithus.xapi.query.base.Query;
 import net.botwithus.xapi.query.base.QueryCache;
 import net.botwithus.xapi.query.result.ResultSet;
@@ -26,7 +28,8 @@ public class InventoryQuery implements Query<Inventory, ResultSet<Inventory>> {
         if (ids.length == 0) {
             root = t -> true;
         } else {
-            root = t -> Arrays.stream(ids).anyMatch(i -> i == t.getId());
+            var set = IntSet.of(ids);
+            root = t -> set.contains(t.getId());
         }
     }
 
@@ -35,6 +38,11 @@ public class InventoryQuery implements Query<Inventory, ResultSet<Inventory>> {
         return this;
     }
 
+    public InventoryQuery withCache(int ticks) {
+        cache.configureTicks(ticks);
+        return this;
+    }
+
     public static InventoryQuery containingAny(int inventoryId, int... itemIds) {
         return new InventoryQuery(inventoryId).contains(itemIds);
     }
@@ -50,6 +58,20 @@ public class InventoryQuery implements Query<Inventory, ResultSet<Inventory>> {
         ));
     }
 
+    @Override
+    public Inventory first() {
+        if (cache.isEnabled()) {
+            return results().first();
+        }
+        for (int id : ids) {
+            var inventory = InventoryManager.getInventory(id);
+            if (inventory != null && test(inventory)) {
+                return inventory;
+            }
+        }
+        return null;
+    }
+
     @Override
     public Iterator<Inventory> iterator() {
         return results().iterator();
@@ -93,6 +115,19 @@ public class InventoryQuery implements Query<Inventory, ResultSet<Inventory>> {
             return this;
         }
         invalidateCache();
+        var matcher = NameMatcher.of(spred, names);
+        if (matcher != null) {
+            this.root = this.root.and(t -> {
+                var items = t.getItems();
+                for (int i = 0; i < items.size(); i++) {
+                    if (matcher.test(items.get(i).getName())) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+            return this;
+        }
         this.root = this.root.and(t -> {
             var itemNames = t.getItems().stream().map(Item::getName).toList();
             return Arrays.stream(names).anyMatch(i -> itemNames.stream().anyMatch(j -> spred.apply(i, j)));
@@ -101,7 +136,7 @@ public class InventoryQuery implements Query<Inventory, ResultSet<Inventory>> {
     }
 
     public InventoryQuery contains(String... names) {
-        return contains(String::contentEquals, names);
+        return contains(NameMatcher.EQUALS, names);
     }
 
     public InventoryQuery containsAll(int... itemIds) {
@@ -1,13 +1,15 @@
 package net.botwithus.xapi.query;
 
 import net.botwithus.rs3.entities.PathingEntity;
-import net.botwithus.rs3.world.World;
 import net.botwithus.xapi.query.base.PathingEntityQuery;
 import net.botwithus.xapi.query.base.QueryCache;
+import net.botwithus.xapi.query.base.SpatialIndex;
+import net.botwithus.xapi.query.base.WorldSnapshot;
 import net.botwithus.xapi.query.result.EntityResultSet;
 
 import java.time.Duration;
 import java.util.Iterator;
+import java.util.List;
 
 public class NpcQuery extends PathingEntityQuery<PathingEntity> {
 
@@ -26,9 +28,24 @@ public class NpcQuery extends PathingEntityQuery<PathingEntity> {
         return this;
     }
 
+    public NpcQuery withCache(int ticks) {
+        cache.configureTicks(ticks);
+        return this;
+    }
+
     @Override
     public EntityResultSet<PathingEntity> results() {
-        return cache.getOrCompute(() -> new EntityResultSet<>(World.getNpcs().stream().filter(this).toList()));
+        return cache.getOrCompute(() -> compute(WorldSnapshot.current()));
+    }
+
+    @Override
+    protected List<PathingEntity> candidates(WorldSnapshot snapshot) {
+        return snapshot.npcs();
+    }
+
+    @Override
+    protected SpatialIndex<PathingEntity> spatialIndex(WorldSnapshot snapshot) {
+        return snapshot.npcIndex();
     }
 
     @Override
@@ -37,8 +54,8 @@ public class NpcQuery extends PathingEntityQuery<PathingEntity> {
     }
 
     @Override
-    public boolean test(PathingEntity pathingEntity) {
-        return this.root.test(pathingEntity);
+    protected boolean isResultCached() {
+        return cache.isEnabled();
     }
 
     @Override
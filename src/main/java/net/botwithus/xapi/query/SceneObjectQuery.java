@@ -2,9 +2,15 @@ package net.botwithus.xapi.query;
 
 import net.botwithus.rs3.cache.assets.so.SceneObjectDefinition;
 import net.botwithus.rs3.entities.SceneObject;
-import net.botwithus.rs3.world.World;
+import net.botwithus.xapi.query.base.EntityAttributes;
 import net.botwithus.xapi.query.base.EntityQuery;
+import net.botwithus.xapi.query.base.FilterCost;
+import net.botwithus.xapi.query.base.FilterKey;
+import net.botwithus.xapi.query.base.IntSet;
+import net.botwithus.xapi.query.base.NameMatcher;
 import net.botwithus.xapi.query.base.QueryCache;
+import net.botwithus.xapi.query.base.SpatialIndex;
+import net.botwithus.xapi.query.base.WorldSnapshot;
 import net.botwithus.xapi.query.result.EntityResultSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +18,7 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.BiFunction;
 
@@ -33,110 +40,176 @@ public class SceneObjectQuery extends EntityQuery<SceneObject> {
         return this;
     }
 
+    public SceneObjectQuery withCache(int ticks) {
+        cache.configureTicks(ticks);
+        return this;
+    }
+
     @Override
     public EntityResultSet<SceneObject> results() {
-        return cache.getOrCompute(() -> new EntityResultSet<>(World.getSceneObjects().stream().filter(this).toList()));
+        return cache.getOrCompute(() -> compute(WorldSnapshot.current()));
     }
 
     @Override
-    public Iterator<SceneObject> iterator() {
-        return results().iterator();
+    protected List<SceneObject> candidates(WorldSnapshot snapshot) {
+        return snapshot.sceneObjects();
     }
 
     @Override
-    public boolean test(SceneObject sceneObject) {
-        return this.root.test(sceneObject);
+    protected SpatialIndex<SceneObject> spatialIndex(WorldSnapshot snapshot) {
+        return snapshot.sceneObjectIndex();
+    }
+
+    @Override
+    public Iterator<SceneObject> iterator() {
+        return results().iterator();
     }
 
     public SceneObjectQuery typeId(int... typeIds) {
         if (typeIds.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(typeIds).anyMatch(i -> t.getTypeId() == i));
-        predicateChanged();
-        return this;
+        var set = IntSet.of(typeIds);
+        return filter(FilterCost.CHEAP, FilterKey.of("typeId(int...)", typeIds), t -> set.contains(t.getTypeId()));
     }
 
     public SceneObjectQuery animation(int... animations) {
         if (animations.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(animations).anyMatch(i -> t.getAnimationId() == i));
-        predicateChanged();
-        return this;
+        var set = IntSet.of(animations);
+        return filter(FilterCost.CHEAP, FilterKey.of("animation(int...)", animations), t -> set.contains(t.getAnimationId()));
     }
 
     public SceneObjectQuery hidden(boolean hidden) {
-        this.root = this.root.and(t -> t.isHidden() == hidden);
-        predicateChanged();
-        return this;
+        return filter(FilterCost.CHEAP, FilterKey.of("hidden(boolean)", hidden), t -> t.isHidden() == hidden);
     }
 
     public SceneObjectQuery multiType(SceneObjectDefinition... sceneObjectDefinitions) {
         if (sceneObjectDefinitions.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(sceneObjectDefinitions).anyMatch(i -> t.getMultiType() == i));
-        predicateChanged();
-        return this;
+        var definitions = sceneObjectDefinitions.clone();
+        return filter(FilterCost.MODERATE, FilterKey.of("multiType(SceneObjectDefinition...)", (Object) sceneObjectDefinitions), t -> {
+            var multiType = t.getMultiType();
+            for (var definition : definitions) {
+                if (multiType == definition) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
     public SceneObjectQuery name(BiFunction<String, CharSequence, Boolean> spred, String... names) {
         if (names.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(names)
-                .filter(Objects::nonNull)
-                .anyMatch(i -> spred.apply(i, t.getName())));
-        predicateChanged();
-        return this;
+        var matcher = NameMatcher.of(spred, names);
+        if (matcher != null) {
+            return filter(FilterCost.MODERATE, FilterKey.of("name(BiFunction, String...)", spred, names), (t, snapshot) -> matcher.test(EntityAttributes.of(t, snapshot).name()));
+        }
+        var needles = Arrays.stream(names).filter(Objects::nonNull).toArray(String[]::new);
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("name(BiFunction, String...)", spred, names), (t, snapshot) -> {
+            var objName = EntityAttributes.of(t, snapshot).name();
+            for (var needle : needles) {
+                if (spred.apply(needle, objName)) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
     public SceneObjectQuery name(String... names) {
-        return name(String::contentEquals, names);
+        if (names.length == 0) {
+            return this;
+        }
+        var matcher = NameMatcher.exact(names);
+        return filter(FilterCost.MODERATE, FilterKey.of("name(String...)", (Object) names), (t, snapshot) -> matcher.test(EntityAttributes.of(t, snapshot).name()));
     }
 
     public SceneObjectQuery name(java.util.regex.Pattern... patterns) {
         if (patterns.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> {
-            String objName = t.getName();
-            return objName != null && Arrays.stream(patterns).anyMatch(p -> p.matcher(objName).matches());
+        var compiled = patterns.clone();
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("name(Pattern...)", (Object) patterns), (t, snapshot) -> {
+            String objName = EntityAttributes.of(t, snapshot).name();
+            if (objName == null) {
+                return false;
+            }
+            for (var p : compiled) {
+                if (p.matcher(objName).matches()) {
+                    return true;
+                }
+            }
+            return false;
         });
-        predicateChanged();
-        return this;
     }
 
     public SceneObjectQuery option(BiFunction<String, CharSequence, Boolean> spred, String... options) {
         if (options.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> {
-            var objOptions = t.getOptions();
-            return objOptions != null && Arrays.stream(options)
-                    .filter(Objects::nonNull)
-                    .anyMatch(i -> objOptions.stream().anyMatch(j -> j != null && spred.apply(i, j)));
+        var matcher = NameMatcher.of(spred, options);
+        if (matcher != null) {
+            return filter(FilterCost.EXPENSIVE, FilterKey.of("option(BiFunction, String...)", spred, options), (t, snapshot) -> matcher.anyMatch(EntityAttributes.of(t, snapshot).options()));
+        }
+        var needles = Arrays.stream(options).filter(Objects::nonNull).toArray(String[]::new);
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("option(BiFunction, String...)", spred, options), (t, snapshot) -> {
+            var objOptions = EntityAttributes.of(t, snapshot).options();
+            if (objOptions == null) {
+                return false;
+            }
+            for (var needle : needles) {
+                for (int i = 0; i < objOptions.size(); i++) {
+                    var candidate = objOptions.get(i);
+                    if (candidate != null && spred.apply(needle, candidate)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         });
-        predicateChanged();
-        return this;
     }
 
     public SceneObjectQuery option(String... option) {
-        return option(String::contentEquals, option);
+        if (option.length == 0) {
+            return this;
+        }
+        var matcher = NameMatcher.exact(option);
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("option(String...)", (Object) option), (t, snapshot) -> matcher.anyMatch(EntityAttributes.of(t, snapshot).options()));
     }
 
     public SceneObjectQuery option(java.util.regex.Pattern... patterns) {
         if (patterns.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> {
-            var objOptions = t.getOptions();
-            return objOptions != null && objOptions.stream().anyMatch(opt ->
-                    Arrays.stream(patterns).anyMatch(p -> p.matcher(opt).matches()));
+        var compiled = patterns.clone();
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("option(Pattern...)", (Object) patterns), (t, snapshot) -> {
+            var objOptions = EntityAttributes.of(t, snapshot).options();
+            if (objOptions == null) {
+                return false;
+            }
+            for (int i = 0; i < objOptions.size(); i++) {
+                var candidate = objOptions.get(i);
+                if (candidate == null) {
+                    continue;
+                }
+                for (var p : compiled) {
+                    if (p.matcher(candidate).matches()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         });
-        predicateChanged();
-        return this;
+    }
+
+    @Override
+    protected boolean isResultCached() {
+        return cache.isEnabled();
     }
 
     @Override
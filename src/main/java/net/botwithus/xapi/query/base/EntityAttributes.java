@@ -0,0 +1,129 @@
+package net.botwithus.xapi.query.base;
+
+import net.botwithus.rs3.entities.Entity;
+import net.botwithus.rs3.entities.PathingEntity;
+import net.botwithus.rs3.world.Coordinate;
+
+import java.util.List;
+
+/**
+ * Attributes of one entity, read from the client at most once per server tick and shared by every query filter.
+ * <p>
+ * Instances are handed out by {@link WorldSnapshot#attributes(Entity)}, so all filters and queries inspecting the
+ * same entity during a tick reuse the first read of its name, options, coordinate, overhead text and headbars
+ * instead of crossing into client memory again. Each attribute is read lazily; concurrent first reads may both
+ * reach the client but agree on the value. Plain accessors such as the type id are cheaper to read directly than
+ * through the cache.
+ */
+public final class EntityAttributes {
+    private static final Object UNREAD = new Object();
+
+    private final Entity entity;
+    private volatile Object name = UNREAD;
+    private volatile Object options = UNREAD;
+    private volatile Object coordinate = UNREAD;
+    private volatile Object overheadText = UNREAD;
+    private long headbarsRead;
+    private long headbarsPresent;
+
+    EntityAttributes(Entity entity) {
+        this.entity = entity;
+    }
+
+    /**
+     * Shortcut for the attributes of an entity in the current snapshot.
+     *
+     * @param entity entity to inspect
+     * @return cached attributes of the entity
+     */
+    public static EntityAttributes of(Entity entity) {
+        return WorldSnapshot.current().attributes(entity);
+    }
+
+    /**
+     * Returns the attributes of an entity in the snapshot of the current evaluation pass, as handed to snapshot
+     * filters by {@link FilterChain#test(Object, WorldSnapshot)}.
+     *
+     * @param entity entity to inspect
+     * @param snapshot snapshot of the evaluation pass, or {@code null} to use the current one
+     * @return cached attributes of the entity
+     */
+    public static EntityAttributes of(Entity entity, WorldSnapshot snapshot) {
+        return (snapshot != null ? snapshot : WorldSnapshot.current()).attributes(entity);
+    }
+
+    /**
+     * @return the entity these attributes belong to
+     */
+    public Entity entity() {
+        return entity;
+    }
+
+    /**
+     * @return {@link Entity#getName()}
+     */
+    public String name() {
+        var local = name;
+        if (local == UNREAD) {
+            name = local = entity.getName();
+        }
+        return (String) local;
+    }
+
+    /**
+     * @return {@link Entity#getOptions()}
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> options() {
+        var local = options;
+        if (local == UNREAD) {
+            options = local = entity.getOptions();
+        }
+        return (List<String>) local;
+    }
+
+    /**
+     * @return {@link Entity#getCoordinate()}
+     */
+    public Coordinate coordinate() {
+        var local = coordinate;
+        if (local == UNREAD) {
+            coordinate = local = entity.getCoordinate();
+        }
+        return (Coordinate) local;
+    }
+
+    /**
+     * @return {@link PathingEntity#getOverheadText()}, or {@code null} for entities without one
+     */
+    public String overheadText() {
+        var local = overheadText;
+        if (local == UNREAD) {
+            overheadText = local = entity instanceof PathingEntity pathing ? pathing.getOverheadText() : null;
+        }
+        return (String) local;
+    }
+
+    /**
+     * @param id headbar id
+     * @return true when {@link PathingEntity#getHeadbar(int)} returns a headbar for the id
+     */
+    public boolean hasHeadbar(int id) {
+        if (!(entity instanceof PathingEntity pathing)) {
+            return false;
+        }
+        if (id < 0 || id >= Long.SIZE) {
+            return pathing.getHeadbar(id) != null;
+        }
+        long bit = 1L << id;
+        synchronized (this) {
+            if ((headbarsRead & bit) == 0) {
+                if (pathing.getHeadbar(id) != null) {
+                    headbarsPresent |= bit;
+                }
+                headbarsRead |= bit;
+            }
+            return (headbarsPresent & bit) != 0;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package net.botwithus.xapi.query.base;
 
 import net.botwithus.rs3.entities.Entity;
 import net.botwithus.rs3.entities.EntityType;
+import net.botwithus.rs3.entities.LocalPlayer;
 import net.botwithus.rs3.world.Vector3f;
 import net.botwithus.rs3.world.Area;
 import net.botwithus.rs3.world.Coordinate;
@@ -9,18 +10,180 @@ import net.botwithus.rs3.world.Distance;
 import net.botwithus.xapi.query.result.EntityResultSet;
 
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
 public abstract class EntityQuery<T extends Entity> implements Query<T, EntityResultSet<T>> {
 
-    protected Predicate<T> root;
+    protected final FilterChain<T> filters = new FilterChain<>();
+    private double distanceBound = Double.NaN;
+    private int parallelThreshold;
 
     /**
-     * Constructs a new EntityQuery with a default predicate.
+     * Constructs a new EntityQuery that matches every entity until filters are added.
      */
     @SuppressWarnings("unused")
     public EntityQuery() {
-        root = t -> true;
+    }
+
+    /**
+     * Supplies the entities this query filters, read from the shared per-tick world snapshot.
+     *
+     * @param snapshot snapshot for the current server tick
+     * @return candidate entities
+     */
+    protected abstract List<T> candidates(WorldSnapshot snapshot);
+
+    /**
+     * Supplies the spatial index over {@link #candidates(WorldSnapshot)}, or {@code null} when there is none.
+     *
+     * @param snapshot snapshot for the current server tick
+     * @return spatial index for the candidates
+     */
+    protected SpatialIndex<T> spatialIndex(WorldSnapshot snapshot) {
+        return null;
+    }
+
+    /**
+     * Returns the entities the filter chain should run over. When every result is bounded by
+     * {@link #distance(double)}, only the spatial index neighbourhood of the local player is scanned.
+     *
+     * @param snapshot snapshot for the current server tick
+     * @return entities to filter, in snapshot order
+     */
+    protected List<T> scan(WorldSnapshot snapshot) {
+        if (!Double.isNaN(distanceBound)) {
+            var index = spatialIndex(snapshot);
+            var player = LocalPlayer.self();
+            if (index != null && player != null && player.getCoordinate() != null) {
+                return index.near(player.getCoordinate(), distanceBound);
+            }
+        }
+        return candidates(snapshot);
+    }
+
+    /**
+     * Positions in {@link #candidates(WorldSnapshot)} of the entities {@link #scan(WorldSnapshot)} returns, so a
+     * {@link QueryBatch} can merge the scans of several queries over the same candidates.
+     *
+     * @param snapshot snapshot for the current server tick
+     * @return ordinals of the scanned entities, or {@code null} when every candidate is scanned
+     */
+    int[] scanOrdinals(WorldSnapshot snapshot) {
+        if (!Double.isNaN(distanceBound)) {
+            var index = spatialIndex(snapshot);
+            var player = LocalPlayer.self();
+            if (index != null && player != null && player.getCoordinate() != null) {
+                return index.nearOrdinals(player.getCoordinate(), distanceBound);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return candidate count from which {@link #evaluate(WorldSnapshot)} runs on the fork-join pool, 0 when disabled
+     */
+    int parallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Filters the scanned entities through this query, on the fork-join pool when {@link #parallel(int)} is enabled
+     * and enough entities were scanned.
+     *
+     * @param snapshot snapshot for the current server tick
+     * @return matching entities, in snapshot order
+     */
+    protected List<T> evaluate(WorldSnapshot snapshot) {
+        return ParallelFilter.filter(scan(snapshot), (t, split) -> test(t, snapshot, !split), parallelThreshold);
+    }
+
+    /**
+     * Evaluates the query for the snapshot's tick, or reuses the result of an equivalent query evaluated on the same
+     * tick from {@link SharedQueryCache}.
+     *
+     * @param snapshot snapshot for the current server tick
+     * @return matching entities, in snapshot order
+     */
+    protected EntityResultSet<T> compute(WorldSnapshot snapshot) {
+        return SharedQueryCache.getOrCompute(getClass(), filters.fingerprint(), snapshot.getTick(),
+                () -> new EntityResultSet<>(evaluate(snapshot)));
+    }
+
+    /**
+     * Finds the matching entity nearest to the local player by searching the spatial index outward, without
+     * filtering the whole scene first.
+     *
+     * @return the nearest matching entity, or {@code null}
+     */
+    public T nearest() {
+        var player = LocalPlayer.self();
+        if (isResultCached() || player == null || player.getCoordinate() == null) {
+            return results().nearest();
+        }
+        var snapshot = WorldSnapshot.current();
+        var index = spatialIndex(snapshot);
+        var origin = player.getCoordinate();
+        if (index != null) {
+            double maxDistance = Double.isNaN(distanceBound) ? Double.POSITIVE_INFINITY : distanceBound;
+            var nearest = index.nearest(origin, 1, maxDistance, entity -> test(entity, snapshot),
+                    entity -> Distance.between(entity, origin));
+            return nearest.isEmpty() ? null : nearest.get(0);
+        }
+        T nearest = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (var entity : scan(snapshot)) {
+            if (!test(entity, snapshot)) {
+                continue;
+            }
+            double distance = Distance.between(entity, origin);
+            if (nearest == null || distance < nearestDistance) {
+                nearest = entity;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    @Override
+    public T first() {
+        if (isResultCached()) {
+            return results().first();
+        }
+        var snapshot = WorldSnapshot.current();
+        for (var entity : scan(snapshot)) {
+            if (test(entity, snapshot)) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int count() {
+        if (isResultCached()) {
+            return results().size();
+        }
+        var snapshot = WorldSnapshot.current();
+        int count = 0;
+        for (var entity : scan(snapshot)) {
+            if (test(entity, snapshot)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Subclasses holding a result cache return true while it is enabled, so terminal operations reuse the cached
+     * result set instead of scanning again.
+     *
+     * @return true when {@link #results()} is served from a cache
+     */
+    protected boolean isResultCached() {
+        return false;
     }
 
     /**
@@ -30,14 +193,85 @@ public abstract class EntityQuery<T extends Entity> implements Query<T, EntityRe
         // default no-op
     }
 
+    /**
+     * Appends a filter to the chain and notifies {@link #predicateChanged()}.
+     *
+     * @param cost estimated cost of evaluating the filter, used to order the chain
+     * @param filter filter every result must satisfy
+     * @return this query
+     */
+    protected <Q extends EntityQuery<T>> Q filter(FilterCost cost, Predicate<? super T> filter) {
+        return filter(cost, filter, filter);
+    }
+
+    /**
+     * Appends a filter with a structural key to the chain and notifies {@link #predicateChanged()}. Queries whose
+     * filters all have equal keys share results through {@link SharedQueryCache}.
+     *
+     * @param cost estimated cost of evaluating the filter, used to order the chain
+     * @param key structural key of the filter, see {@link FilterKey}
+     * @param filter filter every result must satisfy
+     * @return this query
+     */
+    @SuppressWarnings("unchecked")
+    protected <Q extends EntityQuery<T>> Q filter(FilterCost cost, Object key, Predicate<? super T> filter) {
+        filters.and(filter, cost, key);
+        predicateChanged();
+        return (Q) this;
+    }
+
+    /**
+     * Appends a filter that reads entity attributes through the snapshot of the evaluation pass, see
+     * {@link EntityAttributes#of(Entity, WorldSnapshot)}.
+     *
+     * @param cost estimated cost of evaluating the filter, used to order the chain
+     * @param key structural key of the filter, see {@link FilterKey}
+     * @param filter filter every result must satisfy; its snapshot is {@code null} outside an evaluation pass
+     * @return this query
+     */
+    @SuppressWarnings("unchecked")
+    protected <Q extends EntityQuery<T>> Q filter(FilterCost cost, Object key, BiPredicate<? super T, WorldSnapshot> filter) {
+        filters.and(filter, cost, key);
+        predicateChanged();
+        return (Q) this;
+    }
+
+    @Override
+    public boolean test(T t) {
+        return filters.test(t);
+    }
+
+    /**
+     * Tests an entity during an evaluation pass over a snapshot, so attribute filters do not resolve it per entity.
+     *
+     * @param t entity to test
+     * @param snapshot snapshot the pass runs over
+     * @return true when the entity matches
+     */
+    protected boolean test(T t, WorldSnapshot snapshot) {
+        return test(t, snapshot, true);
+    }
+
+    /**
+     * Tests an entity during an evaluation pass, optionally without updating the filter statistics, as
+     * {@link ParallelFilter} workers do.
+     *
+     * @param t entity to test
+     * @param snapshot snapshot the pass runs over
+     * @param recordStats false when the pass is split across threads
+     * @return true when the entity matches
+     */
+    protected boolean test(T t, WorldSnapshot snapshot, boolean recordStats) {
+        return filters.test(t, snapshot, recordStats);
+    }
+
     @SuppressWarnings("unchecked")
     public <Q extends EntityQuery<T>> Q type(EntityType... entityType) {
         if (entityType.length == 0) {
             return (Q) this;
         }
-        this.root = this.root.and(t -> Arrays.stream(entityType).anyMatch(i -> t.getType() == i));
-        predicateChanged();
-        return (Q) this;
+        var types = EnumSet.copyOf(Arrays.asList(entityType));
+        return filter(FilterCost.CHEAP, FilterKey.of("type(EntityType...)", (Object) entityType), t -> types.contains(t.getType()));
     }
 
     @SuppressWarnings("unchecked")
@@ -45,9 +279,16 @@ public abstract class EntityQuery<T extends Entity> implements Query<T, EntityRe
         if (coordinate.length == 0) {
             return (Q) this;
         }
-        this.root = this.root.and(t -> Arrays.stream(coordinate).anyMatch(i -> t.getCoordinate().equals(i)));
-        predicateChanged();
-        return (Q) this;
+        var coordinates = coordinate.clone();
+        return filter(FilterCost.MODERATE, FilterKey.of("coordinate(Coordinate...)", (Object) coordinate), (t, snapshot) -> {
+            var entityCoordinate = EntityAttributes.of(t, snapshot).coordinate();
+            for (Coordinate c : coordinates) {
+                if (entityCoordinate.equals(c)) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
     @SuppressWarnings("unchecked")
@@ -55,56 +296,82 @@ public abstract class EntityQuery<T extends Entity> implements Query<T, EntityRe
         if (vector3f.length == 0) {
             return (Q) this;
         }
-        this.root = this.root.and(t -> Arrays.stream(vector3f).anyMatch(i -> t.getDirection().equals(i)));
-        predicateChanged();
-        return (Q) this;
+        var directions = vector3f.clone();
+        return filter(FilterCost.MODERATE, FilterKey.of("direction(Vector3f...)", (Object) vector3f), t -> {
+            var entityDirection = t.getDirection();
+            for (Vector3f d : directions) {
+                if (entityDirection.equals(d)) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
-    @SuppressWarnings("unchecked")
     public <Q extends EntityQuery<T>> Q valid(boolean valid) {
-        this.root = this.root.and(t -> t.isValid() == valid);
-        predicateChanged();
-        return (Q) this;
+        return filter(FilterCost.CHEAP, FilterKey.of("valid(boolean)", valid), t -> t.isValid() == valid);
     }
 
-    @SuppressWarnings("unchecked")
     public <Q extends EntityQuery<T>> Q inside(Area area) {
-        this.root = this.root.and(t -> area.contains(t.getCoordinate()));
-        predicateChanged();
-        return (Q) this;
+        return filter(FilterCost.MODERATE, FilterKey.of("inside(Area)", area), (t, snapshot) -> area.contains(EntityAttributes.of(t, snapshot).coordinate()));
     }
 
-    @SuppressWarnings("unchecked")
     public <Q extends EntityQuery<T>> Q outside(Area area) {
-        this.root = this.root.and(t -> !area.contains(t.getCoordinate()));
-        predicateChanged();
-        return (Q) this;
+        return filter(FilterCost.MODERATE, FilterKey.of("outside(Area)", area), (t, snapshot) -> !area.contains(EntityAttributes.of(t, snapshot).coordinate()));
     }
 
+    /**
+     * Evaluates {@link #results()} on the fork-join pool once at least {@link ParallelFilter#DEFAULT_THRESHOLD}
+     * entities are scanned. Only worth it for expensive filters such as options or regex names, which must be safe
+     * to call off the script thread.
+     *
+     * @return this query
+     */
+    public <Q extends EntityQuery<T>> Q parallel() {
+        return parallel(ParallelFilter.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Evaluates {@link #results()} on the fork-join pool once at least {@code threshold} entities are scanned.
+     * Results keep the snapshot order either way.
+     *
+     * @param threshold minimum scanned entity count, zero or less to always filter sequentially
+     * @return this query
+     */
     @SuppressWarnings("unchecked")
-    public <Q extends EntityQuery<T>> Q distance(double distance) {
-        this.root = this.root.and(t -> Distance.to(t) <= distance);
-        predicateChanged();
+    public <Q extends EntityQuery<T>> Q parallel(int threshold) {
+        parallelThreshold = threshold;
         return (Q) this;
     }
 
+    public <Q extends EntityQuery<T>> Q distance(double distance) {
+        distanceBound = Double.isNaN(distanceBound) ? distance : Math.min(distanceBound, distance);
+        return filter(FilterCost.MODERATE, FilterKey.of("distance(double)", distance), t -> Distance.to(t) <= distance);
+    }
+
     @SuppressWarnings("unchecked")
     public <Q extends EntityQuery<T>> Q and(EntityQuery<T> other) {
-        this.root = this.root.and(other.root);
+        this.filters.and(other.filters);
+        if (!Double.isNaN(other.distanceBound)) {
+            distanceBound = Double.isNaN(distanceBound) ? other.distanceBound : Math.min(distanceBound, other.distanceBound);
+        }
         predicateChanged();
         return (Q) this;
     }
 
     @SuppressWarnings("unchecked")
     public <Q extends EntityQuery<T>> Q or(EntityQuery<T> other) {
-        this.root = this.root.or(other.root);
+        this.filters.or(other.filters);
+        distanceBound = Double.isNaN(distanceBound) || Double.isNaN(other.distanceBound)
+                ? Double.NaN : Math.max(distanceBound, other.distanceBound);
         predicateChanged();
         return (Q) this;
     }
 
     @SuppressWarnings("unchecked")
     public <Q extends EntityQuery<T>> Q inverse() {
-        this.root = this.root.negate();
+        this.filters.negate();
+        distanceBound = Double.NaN;
         predicateChanged();
         return (Q) this;
     }
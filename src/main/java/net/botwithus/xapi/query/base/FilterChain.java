@@ -0,0 +1,329 @@
+package net.botwithus.xapi.query.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Flat conjunction of query filters.
+ * <p>
+ * Filters are accumulated as the query is built and compiled into a plain array the first time the chain is
+ * evaluated after a change. Evaluation is a single indexed loop over that array, so testing an entity does not
+ * walk nested {@link Predicate#and} lambdas or allocate per call.
+ * <p>
+ * Because every filter must pass, their order does not change the result, only how much work is done to reject
+ * an element. The compiled program starts ordered by each filter's {@link FilterCost} and is periodically
+ * re-planned from observed pass rates so that cheap, selective filters run first. Callers that split one scan
+ * across threads, as {@link ParallelFilter} does, evaluate with {@link #test(Object, WorldSnapshot, boolean)
+ * statistics off} so the workers do not contend on the shared counters.
+ * <p>
+ * Each filter carries a {@link FilterKey} describing how it was built. The multiset of keys is the chain's
+ * {@link #fingerprint()}: chains with equal fingerprints accept the same elements, whatever order their filters
+ * were added in.
+ * <p>
+ * Filters that read entity attributes take the {@link WorldSnapshot} of the evaluation pass as a second argument.
+ * Callers scanning many elements resolve the snapshot once and pass it to {@link #test(Object, WorldSnapshot)};
+ * {@link #test(Object)} leaves it to those filters to resolve it themselves.
+ *
+ * @param <T> filtered element type
+ */
+public final class FilterChain<T> implements Predicate<T> {
+
+    private static final int REPLAN_INTERVAL = 512;
+
+    private final List<Filter<T>> filters = new ArrayList<>();
+    private volatile Filter<T>[] program;
+    private volatile Map<Object, Integer> fingerprint;
+    private int evaluations;
+
+    /**
+     * Appends a filter of {@link FilterCost#MODERATE moderate} cost that every element must satisfy.
+     *
+     * @param filter filter to append
+     * @return this chain
+     */
+    public FilterChain<T> and(Predicate<? super T> filter) {
+        return and(filter, FilterCost.MODERATE);
+    }
+
+    /**
+     * Appends a filter that every element must satisfy.
+     *
+     * @param filter filter to append
+     * @param cost estimated evaluation cost of the filter
+     * @return this chain
+     */
+    public FilterChain<T> and(Predicate<? super T> filter, FilterCost cost) {
+        return and(filter, cost, filter);
+    }
+
+    /**
+     * Appends a filter that every element must satisfy.
+     *
+     * @param filter filter to append
+     * @param cost estimated evaluation cost of the filter
+     * @param key structural key of the filter, usually a {@link FilterKey}; the filter itself when it has none
+     * @return this chain
+     */
+    public FilterChain<T> and(Predicate<? super T> filter, FilterCost cost, Object key) {
+        Objects.requireNonNull(filter, "filter");
+        Objects.requireNonNull(cost, "cost");
+        Objects.requireNonNull(key, "key");
+        filters.add(new Filter<>(filter, null, cost, key));
+        changed();
+        return this;
+    }
+
+    /**
+     * Appends a filter that reads the snapshot of the evaluation pass and that every element must satisfy.
+     *
+     * @param filter filter to append; its snapshot argument is {@code null} when the caller did not resolve one
+     * @param cost estimated evaluation cost of the filter
+     * @param key structural key of the filter, usually a {@link FilterKey}; the filter itself when it has none
+     * @return this chain
+     */
+    public FilterChain<T> and(BiPredicate<? super T, WorldSnapshot> filter, FilterCost cost, Object key) {
+        Objects.requireNonNull(filter, "filter");
+        Objects.requireNonNull(cost, "cost");
+        Objects.requireNonNull(key, "key");
+        filters.add(new Filter<>(null, filter, cost, key));
+        changed();
+        return this;
+    }
+
+    /**
+     * Appends the current filters of another chain to this one.
+     *
+     * @param other chain whose filters are appended
+     * @return this chain
+     */
+    public FilterChain<T> and(FilterChain<T> other) {
+        Objects.requireNonNull(other, "other");
+        for (var filter : other.filters) {
+            filters.add(filter.copy());
+        }
+        changed();
+        return this;
+    }
+
+    /**
+     * Replaces this chain with the disjunction of its current filters and those of another chain.
+     *
+     * @param other chain to combine with
+     * @return this chain
+     */
+    public FilterChain<T> or(FilterChain<T> other) {
+        Objects.requireNonNull(other, "other");
+        var left = copy();
+        var right = other.copy();
+        filters.clear();
+        filters.add(new Filter<>(null, (t, snapshot) -> left.test(t, snapshot) || right.test(t, snapshot), FilterCost.EXPENSIVE,
+                FilterKey.of("or", left.fingerprint(), right.fingerprint())));
+        changed();
+        return this;
+    }
+
+    /**
+     * Replaces this chain with the negation of its current filters.
+     *
+     * @return this chain
+     */
+    public FilterChain<T> negate() {
+        var inner = copy();
+        filters.clear();
+        filters.add(new Filter<>(null, (t, snapshot) -> !inner.test(t, snapshot), FilterCost.EXPENSIVE,
+                FilterKey.of("not", inner.fingerprint())));
+        changed();
+        return this;
+    }
+
+    /**
+     * @return number of top-level filters in the chain
+     */
+    public int size() {
+        return filters.size();
+    }
+
+    /**
+     * Returns the structural fingerprint of the chain: how many times each filter key occurs. Equal fingerprints
+     * mean the chains accept the same elements.
+     *
+     * @return immutable multiset of filter keys
+     */
+    public Map<Object, Integer> fingerprint() {
+        var local = fingerprint;
+        if (local == null) {
+            Map<Object, Integer> counts = new HashMap<>();
+            for (var filter : filters) {
+                counts.merge(filter.key, 1, Integer::sum);
+            }
+            local = Map.copyOf(counts);
+            fingerprint = local;
+        }
+        return local;
+    }
+
+    @Override
+    public boolean test(T t) {
+        return test(t, null);
+    }
+
+    /**
+     * Tests an element with the snapshot of the current evaluation pass.
+     *
+     * @param t element to test
+     * @param snapshot snapshot handed to filters that read entity attributes, or {@code null} to let them resolve it
+     * @return true when every filter accepts the element
+     */
+    public boolean test(T t, WorldSnapshot snapshot) {
+        return test(t, snapshot, true);
+    }
+
+    /**
+     * Tests an element, optionally without updating the pass rates the chain is re-planned from.
+     *
+     * @param t element to test
+     * @param snapshot snapshot handed to filters that read entity attributes, or {@code null} to let them resolve it
+     * @param recordStats false when the element is tested on one of several threads sharing a scan
+     * @return true when every filter accepts the element
+     */
+    public boolean test(T t, WorldSnapshot snapshot, boolean recordStats) {
+        var local = compile();
+        if (!recordStats) {
+            for (int i = 0; i < local.length; i++) {
+                if (!local[i].test(t, snapshot)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i < local.length; i++) {
+            var filter = local[i];
+            filter.evaluated++;
+            if (!filter.test(t, snapshot)) {
+                countEvaluation(local);
+                return false;
+            }
+            filter.passed++;
+        }
+        countEvaluation(local);
+        return true;
+    }
+
+    /**
+     * Returns the compiled filter array, building it if the chain changed since the last evaluation.
+     *
+     * @return filters in evaluation order
+     */
+    @SuppressWarnings("unchecked")
+    Filter<T>[] compile() {
+        var local = program;
+        if (local == null) {
+            local = plan(filters.toArray(new Filter[0]));
+            program = local;
+        }
+        return local;
+    }
+
+    /**
+     * Orders filters by rank. Ranks are captured up front because the counters behind them may move while
+     * other threads evaluate the chain.
+     */
+    private static <T> Filter<T>[] plan(Filter<T>[] source) {
+        var ranks = new double[source.length];
+        var order = new Integer[source.length];
+        for (int i = 0; i < source.length; i++) {
+            ranks[i] = source[i].rank();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> ranks[i]));
+        var planned = source.clone();
+        for (int i = 0; i < order.length; i++) {
+            planned[i] = source[order[i]];
+        }
+        return planned;
+    }
+
+    private FilterChain<T> copy() {
+        var copy = new FilterChain<T>();
+        for (var filter : filters) {
+            copy.filters.add(filter.copy());
+        }
+        return copy;
+    }
+
+    private void changed() {
+        program = null;
+        fingerprint = null;
+        evaluations = 0;
+    }
+
+    private void countEvaluation(Filter<T>[] local) {
+        if (++evaluations < REPLAN_INTERVAL) {
+            return;
+        }
+        evaluations = 0;
+        if (local.length < 2) {
+            return;
+        }
+        var replanned = plan(local);
+        for (var filter : replanned) {
+            filter.decay();
+        }
+        if (program == local) {
+            program = replanned;
+        }
+    }
+
+    /**
+     * A single filter in the chain together with the statistics used to plan its position.
+     * Counters are updated without synchronization; they only steer ordering, never the result.
+     */
+    static final class Filter<T> {
+        private final Predicate<? super T> predicate;
+        private final BiPredicate<? super T, WorldSnapshot> contextual;
+        private final FilterCost cost;
+        private final Object key;
+        private int evaluated;
+        private int passed;
+
+        Filter(Predicate<? super T> predicate, BiPredicate<? super T, WorldSnapshot> contextual, FilterCost cost, Object key) {
+            this.predicate = predicate;
+            this.contextual = contextual;
+            this.cost = cost;
+            this.key = key;
+        }
+
+        boolean test(T t, WorldSnapshot snapshot) {
+            return contextual != null ? contextual.test(t, snapshot) : predicate.test(t);
+        }
+
+        FilterCost cost() {
+            return cost;
+        }
+
+        /**
+         * Expected cost paid per rejected element; lower ranks run first. Pass rates use add-one smoothing so
+         * that filters without observations are ordered by cost alone.
+         */
+        double rank() {
+            double rejectRate = (evaluated - passed + 1d) / (evaluated + 2d);
+            return cost.getWeight() / rejectRate;
+        }
+
+        private void decay() {
+            evaluated >>= 1;
+            passed >>= 1;
+        }
+
+        private Filter<T> copy() {
+            return new Filter<>(predicate, contextual, cost, key);
+        }
+    }
+}
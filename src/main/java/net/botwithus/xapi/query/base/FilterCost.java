@@ -0,0 +1,34 @@
+package net.botwithus.xapi.query.base;
+
+/**
+ * Static cost estimate attached to a query filter, used by {@link FilterChain} to decide evaluation order.
+ */
+public enum FilterCost {
+    /**
+     * Plain field reads and comparisons, e.g. type id, validity or animation checks.
+     */
+    CHEAP(1),
+    /**
+     * A single accessor that may cross into client memory plus a hash or equality check, e.g. exact names,
+     * coordinates, areas and distance.
+     */
+    MODERATE(4),
+    /**
+     * Filters that materialize lists, run regular expressions or call user supplied matchers, e.g. options,
+     * headbars, hitmarks and pattern names.
+     */
+    EXPENSIVE(16);
+
+    private final int weight;
+
+    FilterCost(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * @return relative evaluation cost
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
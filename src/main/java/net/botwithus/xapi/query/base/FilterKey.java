@@ -0,0 +1,71 @@
+package net.botwithus.xapi.query.base;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Structural description of a query filter: the builder method that created it and the arguments it was given.
+ * <p>
+ * Two filters with equal keys accept exactly the same elements, which lets {@link SharedQueryCache} recognise
+ * equivalent queries built independently. Arguments are compared by value, arrays element-wise and patterns by
+ * source and flags; any other argument falls back to its own {@code equals}, which is identity for lambdas. Array
+ * arguments are copied, so changing them after the filter was built does not change the key.
+ */
+public final class FilterKey {
+
+    private final String name;
+    private final Object[] args;
+    private final int hash;
+
+    private FilterKey(String name, Object[] args) {
+        this.name = name;
+        this.args = args;
+        this.hash = 31 * name.hashCode() + Arrays.deepHashCode(args);
+    }
+
+    /**
+     * @param name name of the filter, usually the builder method
+     * @param args arguments the filter was built from
+     * @return key of the filter
+     */
+    public static FilterKey of(String name, Object... args) {
+        var normalized = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            normalized[i] = normalize(args[i]);
+        }
+        return new FilterKey(name, normalized);
+    }
+
+    private static Object normalize(Object arg) {
+        if (arg instanceof Pattern pattern) {
+            return pattern.pattern() + "/" + pattern.flags();
+        }
+        if (arg instanceof Object[] array) {
+            var normalized = new Object[array.length];
+            for (int i = 0; i < array.length; i++) {
+                normalized[i] = normalize(array[i]);
+            }
+            return normalized;
+        }
+        if (arg instanceof int[] array) {
+            return array.clone();
+        }
+        return arg;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof FilterKey other && hash == other.hash && name.equals(other.name)
+                && Arrays.deepEquals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name + Arrays.deepToString(args);
+    }
+}
@@ -0,0 +1,160 @@
+package net.botwithus.xapi.query.base;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of primitive ints used by id-style query filters.
+ * <p>
+ * The layout is picked once at construction from the size and spread of the values:
+ * <ul>
+ *     <li>up to {@value #LINEAR_LIMIT} values are kept in a sorted array and scanned linearly,</li>
+ *     <li>dense ranges are stored as a bitset offset by the smallest value,</li>
+ *     <li>anything else goes into an open-addressing hash table with linear probing.</li>
+ * </ul>
+ * Lookups never box and never allocate, so a filter with dozens of item ids costs about the same per element as
+ * one with a single id.
+ */
+public final class IntSet {
+
+    private static final int LINEAR_LIMIT = 8;
+    private static final int MIN_BITSET_SPAN = 4096;
+    private static final int BITS_PER_VALUE = 64;
+    private static final int EMPTY_SLOT = 0;
+    private static final IntSet EMPTY = new IntSet(new int[0]);
+
+    private final int[] values;
+    private final int[] linear;
+    private final long[] bits;
+    private final int base;
+    private final int[] table;
+    private final int mask;
+    private final boolean containsEmptySlot;
+
+    private IntSet(int[] values) {
+        this.values = values;
+        int size = values.length;
+        if (size <= LINEAR_LIMIT) {
+            linear = values;
+            bits = null;
+            base = 0;
+            table = null;
+            mask = 0;
+            containsEmptySlot = false;
+            return;
+        }
+        linear = null;
+        long span = (long) values[size - 1] - values[0] + 1;
+        if (span <= Math.max(MIN_BITSET_SPAN, (long) size * BITS_PER_VALUE)) {
+            base = values[0];
+            bits = new long[(int) ((span + 63) >>> 6)];
+            for (int value : values) {
+                int offset = value - base;
+                bits[offset >>> 6] |= 1L << offset;
+            }
+            table = null;
+            mask = 0;
+            containsEmptySlot = false;
+            return;
+        }
+        bits = null;
+        base = 0;
+        table = new int[Integer.highestOneBit(size * 2 - 1) << 1];
+        mask = table.length - 1;
+        boolean hasEmptySlot = false;
+        for (int value : values) {
+            if (value == EMPTY_SLOT) {
+                hasEmptySlot = true;
+                continue;
+            }
+            int slot = mix(value) & mask;
+            while (table[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = value;
+        }
+        containsEmptySlot = hasEmptySlot;
+    }
+
+    /**
+     * Creates a set holding the distinct given values.
+     *
+     * @param values values to hold, duplicates are ignored
+     * @return the set
+     */
+    public static IntSet of(int... values) {
+        if (values == null || values.length == 0) {
+            return EMPTY;
+        }
+        var sorted = values.clone();
+        Arrays.sort(sorted);
+        int distinct = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return new IntSet(distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct));
+    }
+
+    /**
+     * @param value value to look up
+     * @return true when the value is in the set
+     */
+    public boolean contains(int value) {
+        if (linear != null) {
+            for (int candidate : linear) {
+                if (candidate >= value) {
+                    return candidate == value;
+                }
+            }
+            return false;
+        }
+        if (bits != null) {
+            long offset = (long) value - base;
+            return offset >= 0 && offset < (long) bits.length << 6 && (bits[(int) (offset >>> 6)] & (1L << offset)) != 0;
+        }
+        if (value == EMPTY_SLOT) {
+            return containsEmptySlot;
+        }
+        int slot = mix(value) & mask;
+        int candidate;
+        while ((candidate = table[slot]) != EMPTY_SLOT) {
+            if (candidate == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of distinct values
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return true when the set holds no values
+     */
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * @return the distinct values in ascending order
+     */
+    public int[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -29,7 +29,8 @@ public abstract class ItemQuery<I extends Item, T extends ItemQuery<I, T>> imple
         if (ids.length == 0) {
             return (T) this;
         }
-        root = root.and(i -> Arrays.stream(ids).anyMatch(id -> id == i.getId()));
+        var set = IntSet.of(ids);
+        root = root.and(i -> set.contains(i.getId()));
         predicateChanged();
         return (T) this;
     }
@@ -60,23 +61,34 @@ public abstract class ItemQuery<I extends Item, T extends ItemQuery<I, T>> imple
         if (categories.length == 0) {
             return (T) this;
         }
-        root = root.and(i -> Arrays.stream(categories).anyMatch(category -> category == i.getCategory()));
+        var set = IntSet.of(categories);
+        root = root.and(i -> set.contains(i.getCategory()));
         predicateChanged();
         return (T) this;
     }
 
+    /**
+     * @param spred the predicate to match names, called as {@code (item name, needle)}
+     * @param names the names to filter by
+     * @return this query
+     */
     @SuppressWarnings("unchecked")
     public T name(BiFunction<String, CharSequence, Boolean> spred, String... names) {
         if (names.length == 0) {
             return (T) this;
         }
-        root = root.and(i -> Arrays.stream(names).anyMatch(name -> spred.apply(i.getName(), name)));
+        var matcher = NameMatcher.ofCandidateFirst(spred, names);
+        if (matcher != null) {
+            root = root.and(i -> matcher.test(i.getName()));
+        } else {
+            root = root.and(i -> Arrays.stream(names).anyMatch(name -> spred.apply(i.getName(), name)));
+        }
         predicateChanged();
         return (T) this;
     }
 
     public T name(String... names) {
-        return name(String::contentEquals, names);
+        return name(NameMatcher.EQUALS, names);
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,364 @@
+package net.botwithus.xapi.query.base;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * Matches candidate strings against a fixed list of needles, compiled once when a filter is built.
+ * <p>
+ * Exact matching uses an open-addressing hash table keyed on the needle characters, and contains matching runs an
+ * Aho-Corasick automaton, so either is a single pass over the candidate regardless of how many needles there are.
+ * Both modes can fold case. Neither mode allocates or boxes while matching.
+ * <p>
+ * The {@link #EQUALS}, {@link #EQUALS_IGNORE_CASE}, {@link #CONTAINS} and {@link #CONTAINS_IGNORE_CASE} functions
+ * can be passed wherever a query accepts a {@code BiFunction<String, CharSequence, Boolean>}; queries recognize them
+ * and compile the needles instead of calling the function for every needle. They take {@code (needle, candidate)};
+ * item queries call their predicate as {@code (candidate, needle)} and only compile the equality functions, see
+ * {@link #ofCandidateFirst}.
+ */
+public final class NameMatcher implements Predicate<CharSequence> {
+
+    /**
+     * Candidate equals the needle.
+     */
+    public static final BiFunction<String, CharSequence, Boolean> EQUALS =
+            (needle, candidate) -> candidate != null && needle.contentEquals(candidate);
+    /**
+     * Candidate equals the needle, ignoring case.
+     */
+    public static final BiFunction<String, CharSequence, Boolean> EQUALS_IGNORE_CASE =
+            (needle, candidate) -> candidate != null && needle.equalsIgnoreCase(candidate.toString());
+    /**
+     * Candidate contains the needle.
+     */
+    public static final BiFunction<String, CharSequence, Boolean> CONTAINS =
+            (needle, candidate) -> candidate != null && candidate.toString().contains(needle);
+    /**
+     * Candidate contains the needle, ignoring case.
+     */
+    public static final BiFunction<String, CharSequence, Boolean> CONTAINS_IGNORE_CASE =
+            (needle, candidate) -> candidate != null && regionContainsIgnoreCase(candidate.toString(), needle);
+
+    private final boolean ignoreCase;
+    private final boolean matchesAny;
+    private final Exact exact;
+    private final Automaton automaton;
+
+    private NameMatcher(boolean ignoreCase, boolean matchesAny, Exact exact, Automaton automaton) {
+        this.ignoreCase = ignoreCase;
+        this.matchesAny = matchesAny;
+        this.exact = exact;
+        this.automaton = automaton;
+    }
+
+    /**
+     * @param needles names to match, {@code null} entries are ignored
+     * @return matcher accepting candidates equal to any needle
+     */
+    public static NameMatcher exact(String... needles) {
+        return exact(false, needles);
+    }
+
+    /**
+     * @param needles names to match, {@code null} entries are ignored
+     * @return matcher accepting candidates equal to any needle, ignoring case
+     */
+    public static NameMatcher exactIgnoreCase(String... needles) {
+        return exact(true, needles);
+    }
+
+    /**
+     * @param needles fragments to match, {@code null} entries are ignored
+     * @return matcher accepting candidates containing any needle
+     */
+    public static NameMatcher contains(String... needles) {
+        return contains(false, needles);
+    }
+
+    /**
+     * @param needles fragments to match, {@code null} entries are ignored
+     * @return matcher accepting candidates containing any needle, ignoring case
+     */
+    public static NameMatcher containsIgnoreCase(String... needles) {
+        return contains(true, needles);
+    }
+
+    /**
+     * Compiles the needles for one of the built-in predicates.
+     *
+     * @param predicate string predicate passed to a query filter
+     * @param needles needles passed to the same filter
+     * @return the compiled matcher, or {@code null} when the predicate is not one of the built-in functions
+     */
+    public static NameMatcher of(BiFunction<String, CharSequence, Boolean> predicate, String... needles) {
+        if (predicate == EQUALS) {
+            return exact(false, needles);
+        }
+        if (predicate == EQUALS_IGNORE_CASE) {
+            return exact(true, needles);
+        }
+        if (predicate == CONTAINS) {
+            return contains(false, needles);
+        }
+        if (predicate == CONTAINS_IGNORE_CASE) {
+            return contains(true, needles);
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the needles for filters that call their predicate as {@code (candidate, needle)}. Only the equality
+     * functions are compiled, since they give the same result with their arguments swapped; the contains functions
+     * are left to the caller, which applies them in its own argument order.
+     *
+     * @param predicate string predicate passed to a query filter
+     * @param needles needles passed to the same filter
+     * @return the compiled matcher, or {@code null} when the predicate is not an equality function
+     */
+    public static NameMatcher ofCandidateFirst(BiFunction<String, CharSequence, Boolean> predicate, String... needles) {
+        return predicate == EQUALS || predicate == EQUALS_IGNORE_CASE ? of(predicate, needles) : null;
+    }
+
+    /**
+     * @param candidate string to test, may be {@code null}
+     * @return true when the candidate matches any needle
+     */
+    @Override
+    public boolean test(CharSequence candidate) {
+        if (candidate == null) {
+            return false;
+        }
+        if (exact != null) {
+            return exact.contains(candidate, ignoreCase);
+        }
+        return matchesAny || automaton.matches(candidate, ignoreCase);
+    }
+
+    /**
+     * @param candidates strings to test, may be {@code null} or hold {@code null} entries
+     * @return true when any candidate matches any needle
+     */
+    public boolean anyMatch(List<String> candidates) {
+        if (candidates == null) {
+            return false;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            if (test(candidates.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static NameMatcher exact(boolean ignoreCase, String... needles) {
+        return new NameMatcher(ignoreCase, false, new Exact(nonNull(needles), ignoreCase), null);
+    }
+
+    private static NameMatcher contains(boolean ignoreCase, String... needles) {
+        var list = nonNull(needles);
+        for (var needle : list) {
+            if (needle.isEmpty()) {
+                return new NameMatcher(ignoreCase, true, null, null);
+            }
+        }
+        return new NameMatcher(ignoreCase, false, null, new Automaton(list, ignoreCase));
+    }
+
+    private static List<String> nonNull(String... needles) {
+        Objects.requireNonNull(needles, "needles");
+        List<String> list = new ArrayList<>(needles.length);
+        for (var needle : needles) {
+            if (needle != null) {
+                list.add(needle);
+            }
+        }
+        return list;
+    }
+
+    private static boolean regionContainsIgnoreCase(String candidate, String needle) {
+        for (int i = 0; i + needle.length() <= candidate.length(); i++) {
+            if (candidate.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Case folding used by {@link String#equalsIgnoreCase(String)}.
+     */
+    private static char fold(char c, boolean ignoreCase) {
+        return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+    }
+
+    /**
+     * Open-addressing set of needles hashed and compared directly against the candidate characters.
+     */
+    private static final class Exact {
+        private final String[] table;
+        private final int mask;
+
+        Exact(List<String> needles, boolean ignoreCase) {
+            table = new String[Integer.highestOneBit(Math.max(1, needles.size()) * 2 - 1) << 1];
+            mask = table.length - 1;
+            for (var needle : needles) {
+                if (contains(needle, ignoreCase)) {
+                    continue;
+                }
+                int slot = hash(needle, ignoreCase) & mask;
+                while (table[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = needle;
+            }
+        }
+
+        boolean contains(CharSequence candidate, boolean ignoreCase) {
+            int slot = hash(candidate, ignoreCase) & mask;
+            String needle;
+            while ((needle = table[slot]) != null) {
+                if (equal(needle, candidate, ignoreCase)) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        private static int hash(CharSequence value, boolean ignoreCase) {
+            int h = 0;
+            for (int i = 0; i < value.length(); i++) {
+                h = 31 * h + fold(value.charAt(i), ignoreCase);
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean equal(String needle, CharSequence candidate, boolean ignoreCase) {
+            if (needle.length() != candidate.length()) {
+                return false;
+            }
+            for (int i = 0; i < needle.length(); i++) {
+                if (fold(needle.charAt(i), ignoreCase) != fold(candidate.charAt(i), ignoreCase)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton flattened into a dense transition table over the needle alphabet. Characters outside
+     * the alphabet reset to the root state.
+     */
+    private static final class Automaton {
+        private final int[] asciiIndex = new int[128];
+        private final char[] wideChars;
+        private final int[] wideIndex;
+        private final int alphabetSize;
+        private final int[] transitions;
+        private final boolean[] accepting;
+
+        Automaton(List<String> needles, boolean ignoreCase) {
+            var alphabet = new StringBuilder();
+            for (var needle : needles) {
+                for (int i = 0; i < needle.length(); i++) {
+                    alphabet.append(fold(needle.charAt(i), ignoreCase));
+                }
+            }
+            var chars = alphabet.chars().distinct().sorted().toArray();
+            alphabetSize = chars.length;
+            Arrays.fill(asciiIndex, -1);
+            int wide = 0;
+            for (int c : chars) {
+                if (c >= 128) {
+                    wide++;
+                }
+            }
+            wideChars = new char[wide];
+            wideIndex = new int[wide];
+            for (int i = 0, w = 0; i < chars.length; i++) {
+                if (chars[i] < 128) {
+                    asciiIndex[chars[i]] = i;
+                } else {
+                    wideChars[w] = (char) chars[i];
+                    wideIndex[w++] = i;
+                }
+            }
+
+            // Build the trie with -1 marking missing edges.
+            int maxStates = 1;
+            for (var needle : needles) {
+                maxStates += needle.length();
+            }
+            int[] trie = new int[maxStates * alphabetSize];
+            Arrays.fill(trie, -1);
+            boolean[] terminal = new boolean[maxStates];
+            int states = 1;
+            for (var needle : needles) {
+                int state = 0;
+                for (int i = 0; i < needle.length(); i++) {
+                    int edge = state * alphabetSize + symbol(fold(needle.charAt(i), ignoreCase));
+                    if (trie[edge] < 0) {
+                        trie[edge] = states++;
+                    }
+                    state = trie[edge];
+                }
+                terminal[state] = true;
+            }
+
+            // Fill in the missing edges from the failure links, breadth first.
+            int[] fail = new int[states];
+            var queue = new ArrayDeque<Integer>();
+            for (int s = 0; s < alphabetSize; s++) {
+                int next = trie[s];
+                if (next < 0) {
+                    trie[s] = 0;
+                } else {
+                    fail[next] = 0;
+                    queue.add(next);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                terminal[state] |= terminal[fail[state]];
+                for (int s = 0; s < alphabetSize; s++) {
+                    int edge = state * alphabetSize + s;
+                    int next = trie[edge];
+                    if (next < 0) {
+                        trie[edge] = trie[fail[state] * alphabetSize + s];
+                    } else {
+                        fail[next] = trie[fail[state] * alphabetSize + s];
+                        queue.add(next);
+                    }
+                }
+            }
+            transitions = Arrays.copyOf(trie, states * alphabetSize);
+            accepting = Arrays.copyOf(terminal, states);
+        }
+
+        boolean matches(CharSequence candidate, boolean ignoreCase) {
+            int state = 0;
+            for (int i = 0; i < candidate.length(); i++) {
+                int symbol = symbol(fold(candidate.charAt(i), ignoreCase));
+                state = symbol < 0 ? 0 : transitions[state * alphabetSize + symbol];
+                if (accepting[state]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int symbol(char c) {
+            if (c < 128) {
+                return asciiIndex[c];
+            }
+            int i = Arrays.binarySearch(wideChars, c);
+            return i >= 0 ? wideIndex[i] : -1;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package net.botwithus.xapi.query.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * Filters a candidate list on a fork-join pool once it is large enough to be worth splitting.
+ * <p>
+ * The list is split into index ranges that record their matches in a shared mask, and the matches are collected
+ * afterwards in list order, so the result is identical to a sequential filter whatever the scheduling was. The
+ * predicate is called from pool threads and must not depend on running on the script thread.
+ */
+public final class ParallelFilter {
+
+    /**
+     * Candidate count from which queries switch to parallel evaluation when no threshold is given.
+     */
+    public static final int DEFAULT_THRESHOLD = 2048;
+
+    private static final int MIN_CHUNK = 256;
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private ParallelFilter() {
+    }
+
+    /**
+     * Sets the pool parallel queries run on; the common pool is used by default.
+     *
+     * @param forkJoinPool pool to use, {@code null} restores the common pool
+     */
+    public static void setPool(ForkJoinPool forkJoinPool) {
+        pool = forkJoinPool != null ? forkJoinPool : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Returns the candidates accepted by the predicate, in candidate order. Lists smaller than the threshold, or
+     * a threshold of zero or less, are filtered sequentially on the calling thread.
+     *
+     * @param candidates elements to filter
+     * @param predicate filter to apply
+     * @param threshold minimum candidate count for parallel evaluation
+     * @param <T> element type
+     * @return the matching elements
+     */
+    public static <T> List<T> filter(List<T> candidates, Predicate<? super T> predicate, int threshold) {
+        Objects.requireNonNull(predicate, "predicate");
+        return filter(candidates, (T candidate, boolean split) -> predicate.test(candidate), threshold);
+    }
+
+    /**
+     * Same as {@link #filter(List, Predicate, int)}, telling the predicate whether the list was split across pool
+     * threads, so it can skip bookkeeping the threads would contend on, such as {@link FilterChain} statistics.
+     *
+     * @param candidates elements to filter
+     * @param predicate filter to apply
+     * @param threshold minimum candidate count for parallel evaluation
+     * @param <T> element type
+     * @return the matching elements
+     */
+    public static <T> List<T> filter(List<T> candidates, Test<? super T> predicate, int threshold) {
+        Objects.requireNonNull(predicate, "predicate");
+        int size = candidates.size();
+        if (threshold <= 0 || size < threshold) {
+            List<T> matches = new ArrayList<>();
+            for (var candidate : candidates) {
+                if (predicate.test(candidate, false)) {
+                    matches.add(candidate);
+                }
+            }
+            return matches;
+        }
+        var elements = candidates.toArray();
+        boolean[] mask = new boolean[size];
+        int chunk = Math.max(MIN_CHUNK, size / (pool.getParallelism() * 4));
+        pool.invoke(new Chunk<>(elements, mask, predicate, 0, size, chunk));
+        List<T> matches = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (mask[i]) {
+                @SuppressWarnings("unchecked")
+                T element = (T) elements[i];
+                matches.add(element);
+            }
+        }
+        return matches;
+    }
+
+    private static final class Chunk<T> extends RecursiveAction {
+        private final Object[] elements;
+        private final boolean[] mask;
+        private final Test<? super T> predicate;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        private Chunk(Object[] elements, boolean[] mask, Test<? super T> predicate, int from, int to, int chunk) {
+            this.elements = elements;
+            this.mask = mask;
+            this.predicate = predicate;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void compute() {
+            if (to - from <= chunk) {
+                for (int i = from; i < to; i++) {
+                    mask[i] = predicate.test((T) elements[i], true);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunk<T>(elements, mask, predicate, from, middle, chunk),
+                    new Chunk<T>(elements, mask, predicate, middle, to, chunk));
+        }
+    }
+
+    /**
+     * Predicate that knows whether it runs on a split list.
+     *
+     * @param <T> element type
+     */
+    @FunctionalInterface
+    public interface Test<T> {
+
+        /**
+         * @param element element to test
+         * @param split true when the list was split across pool threads
+         * @return true when the element matches
+         */
+        boolean test(T element, boolean split);
+    }
+}
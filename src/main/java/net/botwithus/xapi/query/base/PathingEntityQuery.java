@@ -13,144 +13,187 @@ public abstract class PathingEntityQuery<T extends PathingEntity> extends Entity
         if (indices.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(indices).anyMatch(i -> t.getIndex() == i));
-        predicateChanged();
-        return this;
+        var set = IntSet.of(indices);
+        return filter(FilterCost.CHEAP, FilterKey.of("index(int...)", indices), t -> set.contains(t.getIndex()));
     }
 
     public PathingEntityQuery<T> typeId(int... typeIds) {
         if (typeIds.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(typeIds).anyMatch(i -> t.getTypeId() == i));
-        predicateChanged();
-        return this;
+        var set = IntSet.of(typeIds);
+        return filter(FilterCost.CHEAP, FilterKey.of("typeId(int...)", typeIds), t -> set.contains(t.getTypeId()));
     }
 
     public PathingEntityQuery<T> name(String... names) {
         if (names.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(names).anyMatch(n -> n != null && n.equals(t.getName())));
-        predicateChanged();
-        return this;
+        var matcher = NameMatcher.exact(names);
+        return filter(FilterCost.MODERATE, FilterKey.of("name(String...)", (Object) names), (t, snapshot) -> matcher.test(EntityAttributes.of(t, snapshot).name()));
     }
 
     public PathingEntityQuery<T> name(java.util.regex.Pattern... patterns) {
         if (patterns.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> {
-            String entityName = t.getName();
-            return entityName != null && Arrays.stream(patterns).anyMatch(p -> p.matcher(entityName).matches());
+        var compiled = patterns.clone();
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("name(Pattern...)", (Object) patterns), (t, snapshot) -> {
+            String entityName = EntityAttributes.of(t, snapshot).name();
+            if (entityName == null) {
+                return false;
+            }
+            for (var p : compiled) {
+                if (p.matcher(entityName).matches()) {
+                    return true;
+                }
+            }
+            return false;
         });
-        predicateChanged();
-        return this;
     }
 
     public PathingEntityQuery<T> overheadText(String... overheadTexts) {
         if (overheadTexts.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(overheadTexts)
-                .anyMatch(text -> text != null && text.equals(t.getOverheadText())));
-        predicateChanged();
-        return this;
+        var matcher = NameMatcher.exact(overheadTexts);
+        return filter(FilterCost.MODERATE, FilterKey.of("overheadText(String...)", (Object) overheadTexts), (t, snapshot) -> matcher.test(EntityAttributes.of(t, snapshot).overheadText()));
     }
 
     public PathingEntityQuery<T> isMoving(boolean isMoving) {
-        this.root = this.root.and(t -> t.isMoving() == isMoving);
-        predicateChanged();
-        return this;
+        return filter(FilterCost.CHEAP, FilterKey.of("isMoving(boolean)", isMoving), t -> t.isMoving() == isMoving);
     }
 
     public PathingEntityQuery<T> animationId(int... animationIds) {
         if (animationIds.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(animationIds).anyMatch(i -> t.getAnimationId() == i));
-        predicateChanged();
-        return this;
+        var set = IntSet.of(animationIds);
+        return filter(FilterCost.CHEAP, FilterKey.of("animationId(int...)", animationIds), t -> set.contains(t.getAnimationId()));
     }
 
     public PathingEntityQuery<T> stanceId(int... stanceIds) {
         if (stanceIds.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(stanceIds).anyMatch(i -> t.getStanceId() == i));
-        predicateChanged();
-        return this;
+        var set = IntSet.of(stanceIds);
+        return filter(FilterCost.CHEAP, FilterKey.of("stanceId(int...)", stanceIds), t -> set.contains(t.getStanceId()));
     }
 
     public PathingEntityQuery<T> health(int min, int max) {
-        this.root = this.root.and(t -> t.getHealth() >= min && t.getHealth() <= max);
-        predicateChanged();
-        return this;
+        return filter(FilterCost.CHEAP, FilterKey.of("health(int, int)", min, max), t -> {
+            int health = t.getHealth();
+            return health >= min && health <= max;
+        });
     }
 
     public PathingEntityQuery<T> following(EntityType type, int index) {
-        this.root = this.root.and(t -> t.getFollowingType() == type && t.getFollowingIndex() == index);
-        predicateChanged();
-        return this;
+        return filter(FilterCost.CHEAP, FilterKey.of("following(EntityType, int)", type, index), t -> t.getFollowingType() == type && t.getFollowingIndex() == index);
     }
 
     public PathingEntityQuery<T> following(PathingEntity... entity) {
         if (entity.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(entity)
-                .filter(Objects::nonNull)
-                .anyMatch(e -> t.getFollowingType() == e.getType() && t.getFollowingIndex() == e.getIndex()));
-        predicateChanged();
-        return this;
+        var targets = Arrays.stream(entity).filter(Objects::nonNull).toArray(PathingEntity[]::new);
+        return filter(FilterCost.MODERATE, FilterKey.of("following(PathingEntity...)", (Object) entity), t -> {
+            var followingType = t.getFollowingType();
+            int followingIndex = t.getFollowingIndex();
+            for (var e : targets) {
+                if (followingType == e.getType() && followingIndex == e.getIndex()) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
     public PathingEntityQuery<T> headbars(int... headbars) {
         if (headbars.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(headbars).anyMatch(i -> t.getHeadbar(i) != null));
-        predicateChanged();
-        return this;
+        var ids = headbars.clone();
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("headbars(int...)", headbars), (t, snapshot) -> {
+            for (int id : ids) {
+                if (EntityAttributes.of(t, snapshot).hasHeadbar(id)) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
     public PathingEntityQuery<T> hitmarks(int... hitmarks) {
         if (hitmarks.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> Arrays.stream(hitmarks).anyMatch(i -> t.getHitmark(i) != null));
-        predicateChanged();
-        return this;
+        var ids = hitmarks.clone();
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("hitmarks(int...)", hitmarks), t -> {
+            for (int id : ids) {
+                if (t.getHitmark(id) != null) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
     public PathingEntityQuery<T> option(BiFunction<String, CharSequence, Boolean> spred, String... option) {
         if (option.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> {
-            var options = t.getOptions();
-            return options != null && Arrays.stream(option)
-                    .filter(Objects::nonNull)
-                    .anyMatch(i -> options.stream().anyMatch(j -> j != null && spred.apply(i, j)));
+        var matcher = NameMatcher.of(spred, option);
+        if (matcher != null) {
+            return filter(FilterCost.EXPENSIVE, FilterKey.of("option(BiFunction, String...)", spred, option), (t, snapshot) -> matcher.anyMatch(EntityAttributes.of(t, snapshot).options()));
+        }
+        var needles = Arrays.stream(option).filter(Objects::nonNull).toArray(String[]::new);
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("option(BiFunction, String...)", spred, option), (t, snapshot) -> {
+            var options = EntityAttributes.of(t, snapshot).options();
+            if (options == null) {
+                return false;
+            }
+            for (var needle : needles) {
+                for (int i = 0; i < options.size(); i++) {
+                    var candidate = options.get(i);
+                    if (candidate != null && spred.apply(needle, candidate)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         });
-        predicateChanged();
-        return this;
     }
 
     public PathingEntityQuery<T> option(String... option) {
-        return option(String::contentEquals, option);
+        if (option.length == 0) {
+            return this;
+        }
+        var matcher = NameMatcher.exact(option);
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("option(String...)", (Object) option), (t, snapshot) -> matcher.anyMatch(EntityAttributes.of(t, snapshot).options()));
     }
 
     public PathingEntityQuery<T> option(java.util.regex.Pattern... patterns) {
         if (patterns.length == 0) {
             return this;
         }
-        this.root = this.root.and(t -> {
-            var options = t.getOptions();
-            return options != null && options.stream().anyMatch(opt ->
-                    Arrays.stream(patterns).anyMatch(p -> p.matcher(opt).matches()));
+        var compiled = patterns.clone();
+        return filter(FilterCost.EXPENSIVE, FilterKey.of("option(Pattern...)", (Object) patterns), (t, snapshot) -> {
+            var options = EntityAttributes.of(t, snapshot).options();
+            if (options == null) {
+                return false;
+            }
+            for (int i = 0; i < options.size(); i++) {
+                var candidate = options.get(i);
+                if (candidate == null) {
+                    continue;
+                }
+                for (var p : compiled) {
+                    if (p.matcher(candidate).matches()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         });
-        predicateChanged();
-        return this;
     }
 }
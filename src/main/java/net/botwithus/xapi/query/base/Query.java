@@ -4,11 +4,51 @@ import net.botwithus.xapi.query.result.ResultSet;
 import net.botwithus.xapi.script.permissive.Permissive;
 
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public interface Query<T, R extends ResultSet<T>> extends Iterable<T>, Predicate<T> {
     R results();
 
+    /**
+     * Returns the first match. Implementations stop at the first element that passes the filters instead of
+     * building the full result set.
+     *
+     * @return the first matching element, or {@code null}
+     */
+    default T first() {
+        return results().first();
+    }
+
+    /**
+     * @return true when at least one element matches
+     */
+    default boolean any() {
+        return first() != null;
+    }
+
+    /**
+     * Counts the matches without collecting them where the implementation allows it.
+     *
+     * @return number of matching elements
+     */
+    default int count() {
+        return results().size();
+    }
+
+    /**
+     * Subscribes to changes of this query's results. The listener is called with the current results as added, then
+     * with the added, removed and changed results whenever they differ, at most once per server tick. The
+     * subscription belongs to the script running on the calling thread and is cancelled when that script stops.
+     *
+     * @param listener receives every non-empty delta
+     * @return handle used to read the current results and to cancel the subscription
+     * @throws IllegalStateException if the calling thread is not running a script's loop or event handler
+     */
+    default QuerySubscription<T> subscribe(Consumer<QueryDelta<T>> listener) {
+        return QuerySubscription.start(new QuerySubscription<>(this, listener));
+    }
+
     /**
      * Bridges this query into a permissive predicate that succeeds when the query yields results.
      *
@@ -16,7 +56,8 @@ public interface Query<T, R extends ResultSet<T>> extends Iterable<T>, Predicate
      * @return permissive evaluating this query each tick
      */
     default Permissive asPermissive(String name) {
-        return asPermissive(name, resultSet -> !resultSet.isEmpty());
+        Objects.requireNonNull(name, "name");
+        return new Permissive(name, this::any);
     }
 
     /**
@@ -0,0 +1,204 @@
+package net.botwithus.xapi.query.base;
+
+import net.botwithus.rs3.entities.Entity;
+import net.botwithus.xapi.query.result.EntityResultSet;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Evaluates several entity queries together, walking each candidate list of the world snapshot once.
+ * <p>
+ * Queries reading the same snapshot list (all scene objects, all npcs) are grouped, and the union of what their
+ * {@link EntityQuery#scan scans} cover is walked once in snapshot order: a candidate is tested only against the
+ * queries whose scan includes it, so distance-bounded queries still read only their spatial neighbourhood. A query
+ * that serves results from its own cache or from {@link SharedQueryCache}, that is alone on its list, or whose scan
+ * reaches its {@link EntityQuery#parallel(int) parallel threshold} is evaluated the usual way. Every evaluated
+ * result is published to {@link SharedQueryCache}, so each result set equals what {@link EntityQuery#results()}
+ * would return on the same tick.
+ * <pre>{@code
+ * var batch = new QueryBatch();
+ * var altars = batch.add(SceneObjectQuery.newQuery().option("Pray-at"));
+ * var banks = batch.add(SceneObjectQuery.newQuery().option("Bank").distance(20));
+ * var nearestBank = banks.results().nearest();
+ * }</pre>
+ */
+public final class QueryBatch {
+
+    private final List<Entry<?>> entries = new ArrayList<>();
+    private int evaluatedTick = Integer.MIN_VALUE;
+
+    /**
+     * Adds a query to the batch.
+     *
+     * @param query query to evaluate
+     * @param <T> entity type
+     * @return handle to the query's results
+     */
+    public <T extends Entity> Entry<T> add(EntityQuery<T> query) {
+        var entry = new Entry<>(this, Objects.requireNonNull(query, "query"));
+        entries.add(entry);
+        evaluatedTick = Integer.MIN_VALUE;
+        return entry;
+    }
+
+    /**
+     * Evaluates every query of the batch against the current snapshot.
+     *
+     * @return one result set per query, in the order the queries were added
+     */
+    public List<EntityResultSet<?>> execute() {
+        var snapshot = WorldSnapshot.current();
+        Map<List<?>, List<Entry<?>>> groups = new IdentityHashMap<>();
+        for (var entry : entries) {
+            if (entry.query.isResultCached()) {
+                entry.load();
+            } else if (!entry.lookup(snapshot.getTick())) {
+                groups.computeIfAbsent(entry.query.candidates(snapshot), k -> new ArrayList<>(2)).add(entry);
+            }
+        }
+        for (var group : groups.entrySet()) {
+            scan(group.getKey(), group.getValue(), snapshot);
+        }
+        evaluatedTick = snapshot.getTick();
+        List<EntityResultSet<?>> results = new ArrayList<>(entries.size());
+        for (var entry : entries) {
+            results.add(entry.results);
+        }
+        return results;
+    }
+
+    private static void scan(List<?> candidates, List<Entry<?>> group, WorldSnapshot snapshot) {
+        if (group.size() == 1) {
+            group.get(0).evaluate(snapshot);
+            return;
+        }
+        List<Entry<?>> members = new ArrayList<>(group.size());
+        for (var member : group) {
+            var ordinals = member.query.scanOrdinals(snapshot);
+            int scanned = ordinals != null ? ordinals.length : candidates.size();
+            int threshold = member.query.parallelThreshold();
+            if (threshold > 0 && scanned >= threshold) {
+                member.evaluate(snapshot);
+            } else {
+                member.begin(ordinals);
+                members.add(member);
+            }
+        }
+        if (members.size() == 1) {
+            members.get(0).evaluate(snapshot);
+            return;
+        }
+        if (members.isEmpty()) {
+            return;
+        }
+
+        BitSet union = new BitSet(candidates.size());
+        for (var member : members) {
+            if (member.scope == null) {
+                union = null;
+                break;
+            }
+            union.or(member.scope);
+        }
+        if (union == null) {
+            for (int i = 0; i < candidates.size(); i++) {
+                offer(candidates.get(i), i, members, snapshot);
+            }
+        } else {
+            for (int i = union.nextSetBit(0); i >= 0; i = union.nextSetBit(i + 1)) {
+                offer(candidates.get(i), i, members, snapshot);
+            }
+        }
+        for (var member : members) {
+            member.complete(snapshot.getTick());
+        }
+    }
+
+    private static void offer(Object candidate, int ordinal, List<Entry<?>> members, WorldSnapshot snapshot) {
+        for (var member : members) {
+            if (member.scope == null || member.scope.get(ordinal)) {
+                member.offer(candidate, snapshot);
+            }
+        }
+    }
+
+    /**
+     * Results of one query of a batch. Reading them runs the whole batch when it has not been evaluated on the
+     * current server tick.
+     *
+     * @param <T> entity type
+     */
+    public static final class Entry<T extends Entity> {
+        private final QueryBatch batch;
+        private final EntityQuery<T> query;
+        private EntityResultSet<T> results;
+        private List<T> matches;
+        private BitSet scope;
+
+        private Entry(QueryBatch batch, EntityQuery<T> query) {
+            this.batch = batch;
+            this.query = query;
+        }
+
+        /**
+         * @return the query this entry evaluates
+         */
+        public EntityQuery<T> query() {
+            return query;
+        }
+
+        /**
+         * @return the query's results for the current server tick
+         */
+        public EntityResultSet<T> results() {
+            if (results == null || batch.evaluatedTick != WorldSnapshot.current().getTick()) {
+                batch.execute();
+            }
+            return results;
+        }
+
+        private void load() {
+            results = query.results();
+        }
+
+        private boolean lookup(int tick) {
+            results = SharedQueryCache.getIfPresent(query.getClass(), query.filters.fingerprint(), tick);
+            return results != null;
+        }
+
+        private void evaluate(WorldSnapshot snapshot) {
+            results = new EntityResultSet<>(query.evaluate(snapshot));
+            SharedQueryCache.put(query.getClass(), query.filters.fingerprint(), snapshot.getTick(), results);
+        }
+
+        private void begin(int[] ordinals) {
+            matches = new ArrayList<>();
+            if (ordinals != null) {
+                scope = new BitSet();
+                for (int ordinal : ordinals) {
+                    scope.set(ordinal);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void offer(Object candidate, WorldSnapshot snapshot) {
+            var entity = (T) candidate;
+            if (query.test(entity, snapshot)) {
+                matches.add(entity);
+            }
+        }
+
+        private void complete(int tick) {
+            results = new EntityResultSet<>(matches);
+            matches = null;
+            scope = null;
+            SharedQueryCache.put(query.getClass(), query.filters.fingerprint(), tick, results);
+        }
+    }
+}
@@ -1,43 +1,74 @@
 package net.botwithus.xapi.query.base;
 
+import net.botwithus.rs3.client.Client;
+
 import java.time.Duration;
-import java.time.Instant;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 /**
- * Simple TTL-based cache support for query results.
+ * Simple cache support for query results.
+ * <p>
+ * Results can either live for a wall-clock TTL or for a number of server ticks. Tick mode keeps results valid
+ * until {@link Client#getServerTick()} has advanced the configured number of ticks, so cached results never
+ * straddle a game tick boundary.
+ * <p>
+ * The cache is lock-free for readers: the cached value and its expiry are published together as one immutable
+ * entry, so a hit is a single volatile read. Concurrent misses are collapsed into one computation whose result
+ * every caller shares.
  * @param <R> cached result type
  */
 public final class QueryCache<R> {
 
-    private Duration ttl;
-    private Instant expiresAt = Instant.EPOCH;
-    private R cachedValue;
+    private volatile Policy policy = Policy.DISABLED;
+    private final AtomicReference<Entry<R>> entry = new AtomicReference<>(Entry.empty());
+    private final AtomicReference<Flight<R>> inFlight = new AtomicReference<>();
 
     /**
      * Configures the cache TTL. Passing {@code null} or a non-positive duration disables caching.
      *
      * @param ttl time-to-live for cached results
      */
-    public synchronized void configure(Duration ttl) {
-        this.ttl = normalize(ttl);
+    public void configure(Duration ttl) {
+        policy = ttl == null || ttl.isZero() || ttl.isNegative() ? Policy.DISABLED : new Policy(ttl.toNanos(), -1);
+        invalidate();
+    }
+
+    /**
+     * Configures the cache to hold results for the given number of server ticks. A value of {@code 1} keeps
+     * results until the tick changes. Passing a non-positive value disables caching.
+     *
+     * @param ticks number of server ticks a result stays valid
+     */
+    public void configureTicks(int ticks) {
+        policy = ticks > 0 ? new Policy(-1, ticks) : Policy.DISABLED;
         invalidate();
     }
 
     /**
      * @return true when caching is enabled
      */
-    public synchronized boolean isEnabled() {
-        return ttl != null;
+    public boolean isEnabled() {
+        return policy.isEnabled();
+    }
+
+    /**
+     * @return true when results are keyed on server ticks rather than wall-clock time
+     */
+    public boolean isTickBased() {
+        return policy.ttlTicks() > 0;
     }
 
     /**
-     * Clears any cached value immediately.
+     * Clears any cached value immediately. A computation already running is detached so its result is not
+     * published into the cache.
      */
-    public synchronized void invalidate() {
-        cachedValue = null;
-        expiresAt = Instant.EPOCH;
+    public void invalidate() {
+        entry.set(Entry.empty());
+        inFlight.set(null);
     }
 
     /**
@@ -48,37 +79,90 @@ public final class QueryCache<R> {
      */
     public R getOrCompute(Supplier<R> supplier) {
         Objects.requireNonNull(supplier, "supplier");
-        Duration localTtl;
-        Instant localExpiry;
-        R localValue;
-        synchronized (this) {
-            localTtl = this.ttl;
-            localExpiry = this.expiresAt;
-            localValue = this.cachedValue;
-        }
-
-        if (localTtl == null) {
+        var localPolicy = policy;
+        if (!localPolicy.isEnabled()) {
             return supplier.get();
         }
 
-        var now = Instant.now();
-        if (localValue == null || now.isAfter(localExpiry)) {
-            synchronized (this) {
-                now = Instant.now();
-                if (cachedValue == null || now.isAfter(expiresAt)) {
-                    cachedValue = supplier.get();
-                    expiresAt = now.plus(localTtl);
+        int tick = localPolicy.ttlTicks() > 0 ? Client.getServerTick() : 0;
+        long now = localPolicy.ttlNanos() > 0 ? System.nanoTime() : 0L;
+        while (true) {
+            var current = entry.get();
+            if (current.isValid(localPolicy, now, tick)) {
+                return current.value();
+            }
+
+            var flight = inFlight.get();
+            if (flight == null) {
+                var mine = new Flight<R>(Thread.currentThread(), new CompletableFuture<>());
+                if (!inFlight.compareAndSet(null, mine)) {
+                    continue;
                 }
-                return cachedValue;
+                return compute(mine, current, localPolicy, now, tick, supplier);
+            }
+            if (flight.owner() == Thread.currentThread()) {
+                // Re-entrant miss from inside our own computation; waiting on ourselves would deadlock.
+                return supplier.get();
             }
+            return await(flight);
         }
-        return localValue;
     }
 
-    private static Duration normalize(Duration ttl) {
-        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
-            return null;
+    private R compute(Flight<R> flight, Entry<R> observed, Policy localPolicy, long now, int tick, Supplier<R> supplier) {
+        try {
+            R value = supplier.get();
+            if (value != null) {
+                entry.compareAndSet(observed, new Entry<>(value, localPolicy, now + localPolicy.ttlNanos(), tick));
+            }
+            flight.future().complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.future().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.compareAndSet(flight, null);
         }
-        return ttl;
+    }
+
+    private R await(Flight<R> flight) {
+        try {
+            return flight.future().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record Policy(long ttlNanos, int ttlTicks) {
+        static final Policy DISABLED = new Policy(-1, -1);
+
+        boolean isEnabled() {
+            return ttlNanos > 0 || ttlTicks > 0;
+        }
+    }
+
+    private record Entry<R>(R value, Policy policy, long expiresAt, int tick) {
+        static <R> Entry<R> empty() {
+            return new Entry<>(null, Policy.DISABLED, 0L, 0);
+        }
+
+        boolean isValid(Policy current, long now, int currentTick) {
+            if (value == null || policy != current) {
+                return false;
+            }
+            if (current.ttlTicks() > 0) {
+                int elapsed = currentTick - tick;
+                return elapsed >= 0 && elapsed < current.ttlTicks();
+            }
+            return now - expiresAt <= 0;
+        }
+    }
+
+    private record Flight<R>(Thread owner, CompletableFuture<R> future) {
     }
 }
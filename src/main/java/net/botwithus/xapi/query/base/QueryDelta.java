@@ -0,0 +1,21 @@
+package net.botwithus.xapi.query.base;
+
+import java.util.List;
+
+/**
+ * Changes to a subscribed query's results since the previous notification.
+ *
+ * @param added results that started matching
+ * @param removed results that stopped matching, as last seen
+ * @param changed results that still match but whose state changed, as seen now
+ * @param <T> result type
+ */
+public record QueryDelta<T>(List<T> added, List<T> removed, List<T> changed) {
+
+    /**
+     * @return true when nothing changed
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+}
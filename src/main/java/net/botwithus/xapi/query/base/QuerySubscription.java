@@ -0,0 +1,204 @@
+package net.botwithus.xapi.query.base;
+
+import net.botwithus.rs3.inventories.events.InventoryEvent;
+import net.botwithus.xapi.query.result.ResultKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A live subscription to a query's results.
+ * <p>
+ * The subscription keeps the matching results keyed by {@link ResultKey#keysOf(List)}, which counts copies that
+ * share a key, and notifies its listener with the
+ * added, removed and changed results whenever they differ. Each subscription belongs to the
+ * {@link SubscriptionRegistry} of the script that created it: world queries are re-diffed once per server tick by
+ * the script's loop, inventory queries are patched from the script's {@link InventoryEvent}s without re-running the
+ * query, and the script cancels them when it stops.
+ *
+ * @param <T> result type
+ */
+public class QuerySubscription<T> implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(QuerySubscription.class);
+
+    protected final Query<T, ?> query;
+    private final Consumer<QueryDelta<T>> listener;
+    private final Map<Object, Entry<T>> current = new LinkedHashMap<>();
+    private volatile boolean active = true;
+    private SubscriptionRegistry registry;
+    private int lastTick = Integer.MIN_VALUE;
+
+    protected QuerySubscription(Query<T, ?> query, Consumer<QueryDelta<T>> listener) {
+        this.query = Objects.requireNonNull(query, "query");
+        this.listener = Objects.requireNonNull(listener, "listener");
+    }
+
+    /**
+     * Registers a subscription with the script registry bound to the calling thread and seeds it with the current
+     * results, which are reported as added.
+     *
+     * @param subscription subscription to start
+     * @param <S> subscription type
+     * @return the started subscription
+     * @throws IllegalStateException if the calling thread is not running a script
+     */
+    protected static <S extends QuerySubscription<?>> S start(S subscription) {
+        var registry = SubscriptionRegistry.current();
+        subscription.refresh();
+        ((QuerySubscription<?>) subscription).registry = registry;
+        registry.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * @return the results currently matching, in discovery order
+     */
+    public synchronized List<T> current() {
+        List<T> values = new ArrayList<>(current.size());
+        for (var entry : current.values()) {
+            values.add(entry.value());
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * @return true until {@link #cancel()} is called
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Stops notifications and releases the subscription.
+     */
+    public void cancel() {
+        active = false;
+        if (registry != null) {
+            registry.remove(this);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancel();
+    }
+
+    /**
+     * Re-runs the query when the tick has advanced. Event-driven subscriptions override this to do nothing.
+     *
+     * @param tick current server tick
+     */
+    protected void onTick(int tick) {
+        if (tick != lastTick) {
+            lastTick = tick;
+            refresh();
+        }
+    }
+
+    /**
+     * Hook for event-driven subscriptions.
+     *
+     * @param event inventory change
+     */
+    protected void onInventoryEvent(InventoryEvent event) {
+    }
+
+    /**
+     * Runs the query and publishes the difference to the previous results.
+     */
+    protected void refresh() {
+        List<T> results = new ArrayList<>();
+        for (var result : query.results()) {
+            results.add(result);
+        }
+        QueryDelta<T> delta;
+        synchronized (this) {
+            List<T> added = new ArrayList<>();
+            List<T> changed = new ArrayList<>();
+            Map<Object, Entry<T>> next = new LinkedHashMap<>(Math.max(16, results.size() * 2));
+            var keys = ResultKey.keysOf(results);
+            for (int i = 0; i < keys.length; i++) {
+                var key = keys[i];
+                if (key == null) {
+                    continue;
+                }
+                var result = results.get(i);
+                var entry = new Entry<>(result, ResultKey.stateOf(result));
+                next.put(key, entry);
+                var previous = current.remove(key);
+                if (previous == null) {
+                    added.add(result);
+                } else if (!Objects.equals(previous.state(), entry.state())) {
+                    changed.add(result);
+                }
+            }
+            List<T> removed = new ArrayList<>(current.size());
+            for (var entry : current.values()) {
+                removed.add(entry.value());
+            }
+            current.clear();
+            current.putAll(next);
+            delta = new QueryDelta<>(added, removed, changed);
+        }
+        publish(delta);
+    }
+
+    /**
+     * Applies a single known change without re-running the query.
+     *
+     * @param before result previously at the changed position, or {@code null}
+     * @param after result now at the changed position, or {@code null}
+     */
+    protected void apply(T before, T after) {
+        QueryDelta<T> delta;
+        synchronized (this) {
+            var beforeEntry = before != null ? current.remove(ResultKey.of(before)) : null;
+            boolean matches = after != null && query.test(after);
+            if (matches) {
+                var key = ResultKey.of(after);
+                var entry = new Entry<>(after, ResultKey.stateOf(after));
+                var previous = current.put(key, entry);
+                if (previous == null) {
+                    previous = beforeEntry != null && key.equals(ResultKey.of(beforeEntry.value())) ? beforeEntry : null;
+                }
+                if (previous == null) {
+                    delta = new QueryDelta<>(List.of(after), removedOf(beforeEntry), List.of());
+                } else if (!Objects.equals(previous.state(), entry.state())) {
+                    delta = new QueryDelta<>(List.of(), List.of(), List.of(after));
+                } else {
+                    return;
+                }
+            } else if (beforeEntry != null) {
+                delta = new QueryDelta<>(List.of(), List.of(beforeEntry.value()), List.of());
+            } else {
+                return;
+            }
+        }
+        publish(delta);
+    }
+
+    private static <T> List<T> removedOf(Entry<T> entry) {
+        return entry == null ? List.of() : List.of(entry.value());
+    }
+
+    private void publish(QueryDelta<T> delta) {
+        if (!active || delta.isEmpty()) {
+            return;
+        }
+        try {
+            listener.accept(delta);
+        } catch (RuntimeException e) {
+            logger.error("Query subscription listener failed: " + e.getMessage(), e);
+        }
+    }
+
+    private record Entry<T>(T value, Object state) {
+    }
+}
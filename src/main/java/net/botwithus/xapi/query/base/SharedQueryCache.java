@@ -0,0 +1,195 @@
+package net.botwithus.xapi.query.base;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide, size-bounded LRU cache of query results shared by every query instance.
+ * <p>
+ * Entries are keyed by the query type, the {@link FilterChain#fingerprint() fingerprint} of its filters and the
+ * server tick, so two equivalent queries built in different places during the same tick share one evaluation.
+ * Entries of older ticks are never hit again and age out through LRU eviction. Queries that configured their own
+ * {@link QueryCache} only reach this cache when their own cache misses.
+ */
+public final class SharedQueryCache {
+
+    /**
+     * Number of entries kept when no capacity is configured.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final Object LOCK = new Object();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+    private static volatile int capacity = DEFAULT_CAPACITY;
+    private static final Map<Key, Object> ENTRIES = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+            if (size() > capacity) {
+                EVICTIONS.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private SharedQueryCache() {
+    }
+
+    /**
+     * Returns the result cached for an equivalent query on the same tick, computing and caching it on a miss.
+     * The computation runs outside the cache lock, so concurrent misses for one key may both compute.
+     *
+     * @param type query type, which determines the source the filters run over
+     * @param fingerprint structural fingerprint of the query's filters
+     * @param tick server tick the result belongs to
+     * @param supplier computation used on a miss
+     * @param <R> result type
+     * @return cached or freshly computed result
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> R getOrCompute(Class<?> type, Object fingerprint, int tick, Supplier<R> supplier) {
+        if (capacity <= 0) {
+            return supplier.get();
+        }
+        var key = new Key(type, fingerprint, tick);
+        synchronized (LOCK) {
+            var cached = ENTRIES.get(key);
+            if (cached != null) {
+                HITS.increment();
+                return (R) cached;
+            }
+        }
+        MISSES.increment();
+        R value = supplier.get();
+        if (value != null) {
+            synchronized (LOCK) {
+                ENTRIES.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the result cached for an equivalent query on the same tick without computing it on a miss, for callers
+     * that evaluate several queries together and {@link #put} the results afterwards.
+     *
+     * @param type query type, which determines the source the filters run over
+     * @param fingerprint structural fingerprint of the query's filters
+     * @param tick server tick the result belongs to
+     * @param <R> result type
+     * @return cached result, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> R getIfPresent(Class<?> type, Object fingerprint, int tick) {
+        if (capacity <= 0) {
+            return null;
+        }
+        Object cached;
+        synchronized (LOCK) {
+            cached = ENTRIES.get(new Key(type, fingerprint, tick));
+        }
+        if (cached != null) {
+            HITS.increment();
+        } else {
+            MISSES.increment();
+        }
+        return (R) cached;
+    }
+
+    /**
+     * Caches a result evaluated outside {@link #getOrCompute}.
+     *
+     * @param type query type, which determines the source the filters run over
+     * @param fingerprint structural fingerprint of the query's filters
+     * @param tick server tick the result belongs to
+     * @param value result to cache, ignored when {@code null}
+     */
+    public static void put(Class<?> type, Object fingerprint, int tick, Object value) {
+        if (capacity <= 0 || value == null) {
+            return;
+        }
+        synchronized (LOCK) {
+            ENTRIES.put(new Key(type, fingerprint, tick), value);
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached results, evicting the least recently used ones if needed. A capacity of
+     * zero or less disables the cache.
+     *
+     * @param maxEntries maximum number of entries
+     */
+    public static void setCapacity(int maxEntries) {
+        synchronized (LOCK) {
+            capacity = maxEntries;
+            var iterator = ENTRIES.entrySet().iterator();
+            while (ENTRIES.size() > Math.max(0, maxEntries) && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                EVICTIONS.increment();
+            }
+        }
+    }
+
+    /**
+     * @return maximum number of cached results
+     */
+    public static int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Drops every cached result. Counters are kept.
+     */
+    public static void clear() {
+        synchronized (LOCK) {
+            ENTRIES.clear();
+        }
+    }
+
+    /**
+     * @return current hit, miss and eviction counts
+     */
+    public static Stats stats() {
+        int size;
+        synchronized (LOCK) {
+            size = ENTRIES.size();
+        }
+        return new Stats(HITS.sum(), MISSES.sum(), EVICTIONS.sum(), size);
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public static void resetStats() {
+        HITS.reset();
+        MISSES.reset();
+        EVICTIONS.reset();
+    }
+
+    /**
+     * Cache counters.
+     *
+     * @param hits lookups served from the cache
+     * @param misses lookups that had to evaluate the query
+     * @param evictions entries dropped to stay within capacity
+     * @param size entries currently cached
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        /**
+         * @return share of lookups served from the cache, or 0 before the first lookup
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    private record Key(Class<?> type, Object fingerprint, int tick) {
+    }
+}
@@ -0,0 +1,327 @@
+package net.botwithus.xapi.query.base;
+
+import net.botwithus.rs3.world.Area;
+import net.botwithus.rs3.world.Coordinate;
+import net.botwithus.rs3.world.Distance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Uniform grid over the elements of a {@link WorldSnapshot}, bucketed by tile coordinate and plane.
+ * <p>
+ * Coordinates are read once when the index is built and cached alongside the elements, so radius, nearest and
+ * area lookups never call back into the client. Buckets are stored as a single sorted {@code long[]} of
+ * packed {@code (cell, ordinal)} pairs and located by binary search, which keeps the per-tick build free of
+ * boxed maps. Range results are returned in snapshot order so query results stay deterministic.
+ *
+ * @param <T> indexed element type
+ */
+public final class SpatialIndex<T> {
+
+    private static final int CELL_SHIFT = 3;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+    private static final int ORDINAL_BITS = 21;
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+    private static final int AXIS_BITS = 20;
+    private static final int AXIS_MASK = (1 << AXIS_BITS) - 1;
+    private static final int PLANE_MASK = 0x3;
+
+    /**
+     * Extra tiles added to radius lookups, so entities whose distance is measured to their footprint rather
+     * than their anchor tile are never dropped by the grid.
+     */
+    static final int RADIUS_SLACK = 4;
+
+    private final List<T> elements;
+    private final Coordinate[] coordinates;
+    private final int[] xs;
+    private final int[] ys;
+    private final long[] buckets;
+    private final int[] distinctPlanes;
+    private final int minCellX, maxCellX, minCellY, maxCellY;
+
+    /**
+     * Builds an index over the given elements.
+     *
+     * @param elements elements to index, in snapshot order
+     * @param locator resolves the coordinate of an element; elements without a coordinate are not indexed
+     */
+    public SpatialIndex(List<T> elements, Function<? super T, Coordinate> locator) {
+        Objects.requireNonNull(elements, "elements");
+        Objects.requireNonNull(locator, "locator");
+        int size = Math.min(elements.size(), (int) ORDINAL_MASK);
+        this.elements = elements;
+        this.coordinates = new Coordinate[size];
+        this.xs = new int[size];
+        this.ys = new int[size];
+
+        long[] packed = new long[size];
+        int count = 0;
+        int planeMask = 0;
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            var element = elements.get(i);
+            var coordinate = element != null ? locator.apply(element) : null;
+            if (coordinate == null) {
+                continue;
+            }
+            int x = coordinate.getX(), y = coordinate.getY(), plane = coordinate.getZ();
+            coordinates[i] = coordinate;
+            xs[i] = x;
+            ys[i] = y;
+            int cellX = x >> CELL_SHIFT, cellY = y >> CELL_SHIFT;
+            minX = Math.min(minX, cellX);
+            maxX = Math.max(maxX, cellX);
+            minY = Math.min(minY, cellY);
+            maxY = Math.max(maxY, cellY);
+            planeMask |= 1 << (plane & PLANE_MASK);
+            packed[count++] = (cellKey(cellX, cellY, plane) << ORDINAL_BITS) | i;
+        }
+        this.buckets = Arrays.copyOf(packed, count);
+        Arrays.sort(this.buckets);
+        this.distinctPlanes = new int[Integer.bitCount(planeMask)];
+        for (int plane = 0, j = 0; plane <= PLANE_MASK; plane++) {
+            if ((planeMask & (1 << plane)) != 0) {
+                distinctPlanes[j++] = plane;
+            }
+        }
+        this.minCellX = minX;
+        this.maxCellX = maxX;
+        this.minCellY = minY;
+        this.maxCellY = maxY;
+    }
+
+    /**
+     * @return number of elements with a known coordinate
+     */
+    public int size() {
+        return buckets.length;
+    }
+
+    /**
+     * Returns every element whose tile lies within the square of the given radius around {@code center}, on any
+     * plane. The result is a superset of the elements within {@code radius} by any tile distance metric and is
+     * meant to narrow candidates before an exact distance filter runs.
+     *
+     * @param center reference coordinate
+     * @param radius search radius in tiles
+     * @return candidate elements in snapshot order
+     */
+    public List<T> near(Coordinate center, double radius) {
+        var hits = nearOrdinals(center, radius);
+        return collect(hits, hits.length);
+    }
+
+    /**
+     * Same lookup as {@link #near(Coordinate, double)}, returning the positions of the elements in the indexed list
+     * in no particular order.
+     *
+     * @param center reference coordinate
+     * @param radius search radius in tiles
+     * @return ordinals of the candidate elements
+     */
+    int[] nearOrdinals(Coordinate center, double radius) {
+        if (center == null || buckets.length == 0 || Double.isNaN(radius) || radius < 0) {
+            return new int[0];
+        }
+        int reach = (int) Math.min(Math.ceil(radius) + RADIUS_SLACK, Integer.MAX_VALUE >> 1);
+        int x = center.getX(), y = center.getY();
+        int fromX = Math.max(minCellX, (x - reach) >> CELL_SHIFT), toX = Math.min(maxCellX, (x + reach) >> CELL_SHIFT);
+        int fromY = Math.max(minCellY, (y - reach) >> CELL_SHIFT), toY = Math.min(maxCellY, (y + reach) >> CELL_SHIFT);
+
+        int[] hits = new int[16];
+        int count = 0;
+        for (int plane : distinctPlanes) {
+            for (int cellX = fromX; cellX <= toX; cellX++) {
+                for (int cellY = fromY; cellY <= toY; cellY++) {
+                    long key = cellKey(cellX, cellY, plane);
+                    for (int b = lowerBound(key); b < buckets.length && (buckets[b] >>> ORDINAL_BITS) == key; b++) {
+                        int ordinal = (int) (buckets[b] & ORDINAL_MASK);
+                        if (Math.abs(xs[ordinal] - x) <= reach && Math.abs(ys[ordinal] - y) <= reach) {
+                            if (count == hits.length) {
+                                hits = Arrays.copyOf(hits, count * 2);
+                            }
+                            hits[count++] = ordinal;
+                        }
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(hits, count);
+    }
+
+    /**
+     * Returns every element whose coordinate is contained in the area, in snapshot order. The area exposes no
+     * bounds, so every indexed coordinate is tested, but against the cached coordinate rather than the client.
+     *
+     * @param area area to test
+     * @return contained elements
+     */
+    public List<T> inside(Area area) {
+        if (area == null || buckets.length == 0) {
+            return Collections.emptyList();
+        }
+        int[] hits = new int[16];
+        int count = 0;
+        for (int ordinal = 0; ordinal < coordinates.length; ordinal++) {
+            var coordinate = coordinates[ordinal];
+            if (coordinate != null && area.contains(coordinate)) {
+                if (count == hits.length) {
+                    hits = Arrays.copyOf(hits, count * 2);
+                }
+                hits[count++] = ordinal;
+            }
+        }
+        return collect(hits, count);
+    }
+
+    /**
+     * Finds the element closest to {@code center} that satisfies the filter.
+     *
+     * @param center reference coordinate
+     * @param maxDistance maximum allowed distance, or {@link Double#POSITIVE_INFINITY}
+     * @param filter predicate the element must satisfy
+     * @return the nearest matching element, or {@code null}
+     */
+    public T nearest(Coordinate center, double maxDistance, Predicate<? super T> filter) {
+        var nearest = nearest(center, 1, maxDistance, filter);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * Finds up to {@code k} elements closest to {@code center} that satisfy the filter, searching outward ring
+     * by ring and stopping once no unvisited cell can hold a closer element.
+     *
+     * @param center reference coordinate
+     * @param k maximum number of elements to return
+     * @param maxDistance maximum allowed distance, or {@link Double#POSITIVE_INFINITY}
+     * @param filter predicate the elements must satisfy
+     * @return matching elements ordered by increasing distance
+     */
+    public List<T> nearest(Coordinate center, int k, double maxDistance, Predicate<? super T> filter) {
+        return nearest(center, k, maxDistance, filter, null, 0);
+    }
+
+    /**
+     * Finds up to {@code k} elements closest to {@code center} that satisfy the filter, ranked by a distance
+     * measured on the element itself, such as {@link Distance#between(net.botwithus.rs3.entities.Entity, Coordinate)}
+     * for entities with a footprint. That distance may be up to {@link #RADIUS_SLACK} tiles shorter than the
+     * distance of the indexed tile, and the search widens accordingly. Ties are broken by snapshot order, so the
+     * result matches a linear scan over the elements with the same distance.
+     *
+     * @param center reference coordinate
+     * @param k maximum number of elements to return
+     * @param maxDistance maximum allowed distance, or {@link Double#POSITIVE_INFINITY}
+     * @param filter predicate the elements must satisfy
+     * @param distance distance of an element to {@code center}
+     * @return matching elements ordered by increasing distance
+     */
+    public List<T> nearest(Coordinate center, int k, double maxDistance, Predicate<? super T> filter,
+                           ToDoubleFunction<? super T> distance) {
+        return nearest(center, k, maxDistance, filter, Objects.requireNonNull(distance, "distance"), RADIUS_SLACK);
+    }
+
+    private List<T> nearest(Coordinate center, int k, double maxDistance, Predicate<? super T> filter,
+                            ToDoubleFunction<? super T> measure, int slack) {
+        Objects.requireNonNull(filter, "filter");
+        if (center == null || k <= 0 || buckets.length == 0 || Double.isNaN(maxDistance) || maxDistance < 0) {
+            return Collections.emptyList();
+        }
+        int centerCellX = center.getX() >> CELL_SHIFT, centerCellY = center.getY() >> CELL_SHIFT;
+        int maxRing = Math.max(
+                Math.max(Math.abs(centerCellX - minCellX), Math.abs(maxCellX - centerCellX)),
+                Math.max(Math.abs(centerCellY - minCellY), Math.abs(maxCellY - centerCellY)));
+
+        int[] best = new int[k];
+        double[] bestDistance = new double[k];
+        int found = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double ringFloor = (ring - 1) * (double) CELL_SIZE - slack;
+            if (ringFloor > maxDistance || (found == k && ringFloor > bestDistance[k - 1])) {
+                break;
+            }
+            for (int cellX = centerCellX - ring; cellX <= centerCellX + ring; cellX++) {
+                boolean edgeColumn = cellX == centerCellX - ring || cellX == centerCellX + ring;
+                int step = edgeColumn ? 1 : Math.max(1, ring * 2);
+                for (int cellY = centerCellY - ring; cellY <= centerCellY + ring; cellY += step) {
+                    for (int plane : distinctPlanes) {
+                        long key = cellKey(cellX, cellY, plane);
+                        for (int b = lowerBound(key); b < buckets.length && (buckets[b] >>> ORDINAL_BITS) == key; b++) {
+                            int ordinal = (int) (buckets[b] & ORDINAL_MASK);
+                            double distance = Distance.between(coordinates[ordinal], center);
+                            if (Double.isNaN(distance) || distance - slack > maxDistance
+                                    || (found == k && distance - slack > bestDistance[k - 1])) {
+                                continue;
+                            }
+                            var element = elements.get(ordinal);
+                            if (measure != null) {
+                                distance = measure.applyAsDouble(element);
+                                if (Double.isNaN(distance) || distance > maxDistance) {
+                                    continue;
+                                }
+                            }
+                            if ((found == k && !isCloser(distance, ordinal, bestDistance[k - 1], best[k - 1]))
+                                    || !filter.test(element)) {
+                                continue;
+                            }
+                            int slot = found < k ? found++ : k - 1;
+                            while (slot > 0 && isCloser(distance, ordinal, bestDistance[slot - 1], best[slot - 1])) {
+                                best[slot] = best[slot - 1];
+                                bestDistance[slot] = bestDistance[slot - 1];
+                                slot--;
+                            }
+                            best[slot] = ordinal;
+                            bestDistance[slot] = distance;
+                        }
+                    }
+                }
+            }
+        }
+        List<T> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(elements.get(best[i]));
+        }
+        return result;
+    }
+
+    private static boolean isCloser(double distance, int ordinal, double otherDistance, int otherOrdinal) {
+        return distance < otherDistance || (distance == otherDistance && ordinal < otherOrdinal);
+    }
+
+    private List<T> collect(int[] ordinals, int count) {
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(ordinals, 0, count);
+        List<T> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(elements.get(ordinals[i]));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private int lowerBound(long key) {
+        long target = key << ORDINAL_BITS;
+        int low = 0, high = buckets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buckets[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long cellKey(int cellX, int cellY, int plane) {
+        return ((long) (plane & PLANE_MASK) << (AXIS_BITS * 2)) | ((long) (cellX & AXIS_MASK) << AXIS_BITS) | (cellY & AXIS_MASK);
+    }
+}
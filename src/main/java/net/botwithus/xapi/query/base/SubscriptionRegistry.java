@@ -0,0 +1,99 @@
+package net.botwithus.xapi.query.base;
+
+import net.botwithus.rs3.inventories.events.InventoryEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The query subscriptions owned by one script.
+ * <p>
+ * A script drives its registry from its own loop and inventory event handler, so listeners only ever run for the
+ * script that subscribed, and cancels it when the script stops. {@link Query#subscribe} adds the new subscription
+ * to the registry {@link #bind bound} to the calling thread, which a script binds while its loop and event handlers
+ * run.
+ */
+public final class SubscriptionRegistry {
+    private static final ThreadLocal<SubscriptionRegistry> BOUND = new ThreadLocal<>();
+
+    private final List<QuerySubscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Binds a registry to the calling thread.
+     *
+     * @param registry registry new subscriptions are added to, or {@code null} to unbind
+     * @return the registry bound before, to restore afterwards
+     */
+    public static SubscriptionRegistry bind(SubscriptionRegistry registry) {
+        var previous = BOUND.get();
+        if (registry != null) {
+            BOUND.set(registry);
+        } else {
+            BOUND.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * @return the registry bound to the calling thread
+     * @throws IllegalStateException if no script bound one
+     */
+    static SubscriptionRegistry current() {
+        var registry = BOUND.get();
+        if (registry == null) {
+            throw new IllegalStateException("Queries can only be subscribed to from a script's loop, its event "
+                    + "handlers or DelayableScript#subscribe");
+        }
+        return registry;
+    }
+
+    void add(QuerySubscription<?> subscription) {
+        subscriptions.add(subscription);
+    }
+
+    void remove(QuerySubscription<?> subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Re-diffs every tick-driven subscription once per server tick. Called by the script loop.
+     *
+     * @param tick current server tick
+     */
+    public void tick(int tick) {
+        for (var subscription : subscriptions) {
+            subscription.onTick(tick);
+        }
+    }
+
+    /**
+     * Forwards an inventory event to every subscription. Called from the script's inventory event handler.
+     *
+     * @param event inventory change
+     */
+    public void inventoryChanged(InventoryEvent event) {
+        if (event == null) {
+            return;
+        }
+        for (var subscription : subscriptions) {
+            subscription.onInventoryEvent(event);
+        }
+    }
+
+    /**
+     * @return number of active subscriptions
+     */
+    public int size() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Cancels every subscription of the registry. Called when the script stops.
+     */
+    public void cancelAll() {
+        for (var subscription : subscriptions) {
+            subscription.cancel();
+        }
+        subscriptions.clear();
+    }
+}
@@ -0,0 +1,201 @@
+package net.botwithus.xapi.query.base;
+
+import net.botwithus.rs3.client.Client;
+import net.botwithus.rs3.entities.Entity;
+import net.botwithus.rs3.entities.PathingEntity;
+import net.botwithus.rs3.entities.SceneObject;
+import net.botwithus.rs3.item.GroundItem;
+import net.botwithus.rs3.world.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tick-scoped view of the world shared by every query evaluated during the same server tick.
+ * <p>
+ * Each entity list is pulled from {@link World} at most once per tick, the first time a query asks for it,
+ * and reused by every query until {@link Client#getServerTick()} advances.
+ */
+public final class WorldSnapshot {
+
+    private static volatile WorldSnapshot current;
+
+    private final int tick;
+    private volatile List<SceneObject> sceneObjects;
+    private volatile List<PathingEntity> npcs;
+    private volatile List<GroundItem> groundItems;
+    private volatile SpatialIndex<SceneObject> sceneObjectIndex;
+    private volatile SpatialIndex<PathingEntity> npcIndex;
+    private volatile SpatialIndex<GroundItem> groundItemIndex;
+    private final Map<Entity, EntityAttributes> attributes = new ConcurrentHashMap<>();
+
+    private WorldSnapshot(int tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Returns the snapshot for the current server tick, capturing a new one when the tick has changed.
+     *
+     * @return snapshot bound to the current server tick
+     */
+    public static WorldSnapshot current() {
+        int tick = Client.getServerTick();
+        var snapshot = current;
+        if (snapshot == null || snapshot.tick != tick) {
+            synchronized (WorldSnapshot.class) {
+                snapshot = current;
+                if (snapshot == null || snapshot.tick != tick) {
+                    snapshot = new WorldSnapshot(tick);
+                    current = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops the current snapshot so the next query re-reads the world even if the tick has not advanced.
+     */
+    public static void invalidate() {
+        current = null;
+    }
+
+    /**
+     * @return server tick this snapshot was captured on
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * @return scene objects loaded this tick
+     */
+    public List<SceneObject> sceneObjects() {
+        var local = sceneObjects;
+        if (local == null) {
+            synchronized (this) {
+                local = sceneObjects;
+                if (local == null) {
+                    local = copyOf(World.getSceneObjects());
+                    sceneObjects = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * @return npcs loaded this tick
+     */
+    public List<PathingEntity> npcs() {
+        var local = npcs;
+        if (local == null) {
+            synchronized (this) {
+                local = npcs;
+                if (local == null) {
+                    local = copyOf(World.getNpcs());
+                    npcs = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * @return ground items loaded this tick, flattened out of their stacks
+     */
+    public List<GroundItem> groundItems() {
+        var local = groundItems;
+        if (local == null) {
+            synchronized (this) {
+                local = groundItems;
+                if (local == null) {
+                    List<GroundItem> items = new ArrayList<>();
+                    var stacks = World.getGroundItems();
+                    if (stacks != null) {
+                        for (var stack : stacks) {
+                            if (stack != null) {
+                                items.addAll(stack.getItems());
+                            }
+                        }
+                    }
+                    local = Collections.unmodifiableList(items);
+                    groundItems = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * @return spatial index over {@link #sceneObjects()}, built on first use this tick
+     */
+    public SpatialIndex<SceneObject> sceneObjectIndex() {
+        var local = sceneObjectIndex;
+        if (local == null) {
+            synchronized (this) {
+                local = sceneObjectIndex;
+                if (local == null) {
+                    local = new SpatialIndex<>(sceneObjects(), SceneObject::getCoordinate);
+                    sceneObjectIndex = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * @return spatial index over {@link #npcs()}, built on first use this tick
+     */
+    public SpatialIndex<PathingEntity> npcIndex() {
+        var local = npcIndex;
+        if (local == null) {
+            synchronized (this) {
+                local = npcIndex;
+                if (local == null) {
+                    local = new SpatialIndex<>(npcs(), PathingEntity::getCoordinate);
+                    npcIndex = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * @return spatial index over {@link #groundItems()} keyed by stack coordinate, built on first use this tick
+     */
+    public SpatialIndex<GroundItem> groundItemIndex() {
+        var local = groundItemIndex;
+        if (local == null) {
+            synchronized (this) {
+                local = groundItemIndex;
+                if (local == null) {
+                    local = new SpatialIndex<>(groundItems(), item -> item.getStack() != null ? item.getStack().getCoordinate() : null);
+                    groundItemIndex = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Returns the attribute cache of an entity for this tick, created the first time a filter inspects it.
+     *
+     * @param entity entity to inspect
+     * @return cached attributes of the entity
+     */
+    public EntityAttributes attributes(Entity entity) {
+        return attributes.computeIfAbsent(entity, EntityAttributes::new);
+    }
+
+    private static <E> List<E> copyOf(Collection<? extends E> source) {
+        if (source == null || source.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(source));
+    }
+}
@@ -0,0 +1,160 @@
+package net.botwithus.xapi.query.result;
+
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Immutable list over a shared element array, used as the storage of every {@link ResultSet}.
+ * <p>
+ * A view covers {@code size} positions starting at {@code offset}, either of the element array itself or of an
+ * index array holding element positions in view order. Sub-lists share both arrays, and filtering, sorting and
+ * removal only allocate a new index array, so chained result set operations never copy the elements.
+ *
+ * @param <T> element type
+ */
+final class ArrayView<T> extends AbstractList<T> implements RandomAccess {
+    private static final ArrayView<?> EMPTY = new ArrayView<>(new Object[0], null, 0, 0);
+
+    private final Object[] elements;
+    private final int[] order;
+    private final int offset;
+    private final int size;
+
+    private ArrayView(Object[] elements, int[] order, int offset, int size) {
+        this.elements = elements;
+        this.order = order;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * @param list source list, copied once unless it already is a view
+     * @return immutable view over the list's elements
+     */
+    static <T> ArrayView<T> of(List<T> list) {
+        if (list instanceof ArrayView<T> view) {
+            return view;
+        }
+        if (list == null || list.isEmpty()) {
+            return empty();
+        }
+        var elements = list.toArray();
+        return new ArrayView<>(elements, null, 0, elements.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ArrayView<T> empty() {
+        return (ArrayView<T>) EMPTY;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        return (T) elements[position(index)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ArrayView<T> subList(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        if (fromIndex == 0 && toIndex == size) {
+            return this;
+        }
+        return new ArrayView<>(elements, order, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Selects elements by their index in this view. The index array is taken over and must not be reused.
+     *
+     * @param indexes indexes into this view, in the order of the new view
+     * @param count number of leading entries of {@code indexes} to use
+     * @return view of the selected elements
+     */
+    ArrayView<T> select(int[] indexes, int count) {
+        if (count == 0) {
+            return empty();
+        }
+        for (int i = 0; i < count; i++) {
+            Objects.checkIndex(indexes[i], size);
+            indexes[i] = position(indexes[i]);
+        }
+        return new ArrayView<>(elements, indexes, 0, count);
+    }
+
+    /**
+     * @param filter elements to keep
+     * @return this view when every element is kept, otherwise a view of the kept elements
+     */
+    ArrayView<T> filter(Predicate<? super T> filter) {
+        int[] kept = null;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            boolean keep = filter.test(get(i));
+            if (kept == null) {
+                if (keep) {
+                    continue;
+                }
+                kept = new int[size - 1];
+                for (; count < i; count++) {
+                    kept[count] = count;
+                }
+            } else if (keep) {
+                kept[count++] = i;
+            }
+        }
+        return kept == null ? this : select(kept, count);
+    }
+
+    /**
+     * Stable sort of this view.
+     *
+     * @param comparator element order
+     * @return view of the same elements in sorted order
+     */
+    ArrayView<T> sorted(Comparator<? super T> comparator) {
+        if (size < 2) {
+            return this;
+        }
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = position(i);
+        }
+        mergeSort(indexes, new int[size], 0, size, comparator);
+        return new ArrayView<>(elements, indexes, 0, size);
+    }
+
+    private int position(int index) {
+        return order == null ? offset + index : order[offset + index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mergeSort(int[] indexes, int[] buffer, int from, int to, Comparator<? super T> comparator) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(indexes, buffer, from, middle, comparator);
+        mergeSort(indexes, buffer, middle, to, comparator);
+        if (comparator.compare((T) elements[indexes[middle - 1]], (T) elements[indexes[middle]]) <= 0) {
+            return;
+        }
+        System.arraycopy(indexes, from, buffer, from, to - from);
+        int left = from, right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare((T) elements[buffer[left]], (T) elements[buffer[right]]) <= 0)) {
+                indexes[i] = buffer[left++];
+            } else {
+                indexes[i] = buffer[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package net.botwithus.xapi.query.result;
+
+import net.botwithus.rs3.entities.Entity;
+import net.botwithus.rs3.world.Coordinate;
+import net.botwithus.rs3.world.Distance;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Entity result set ordered by increasing distance to a fixed origin.
+ * <p>
+ * Distances are computed once while sorting and kept in a parallel array, so range lookups and
+ * {@link #distance(int)} never recompute them. Entities at equal distance keep their original order. The sorted
+ * set and its {@link #within(double) prefixes} are views over the source elements and the distance array.
+ *
+ * @param <T> entity type
+ */
+public class DistanceSortedResultSet<T extends Entity> extends EntityResultSet<T> {
+
+    private final Coordinate origin;
+    private final double[] distances;
+
+    private DistanceSortedResultSet(List<T> results, Coordinate origin, double[] distances) {
+        super(results);
+        this.origin = origin;
+        this.distances = distances;
+    }
+
+    /**
+     * Sorts the non-null entities by distance to the given origin.
+     *
+     * @param entities source entities
+     * @param origin reference coordinate
+     * @param <E> entity type
+     * @return distance-sorted result set
+     */
+    static <E extends Entity> DistanceSortedResultSet<E> of(List<E> entities, Coordinate origin) {
+        var view = ArrayView.of(entities);
+        int size = view.size();
+        double[] keys = new double[size];
+        Integer[] order = new Integer[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            var entity = view.get(i);
+            if (entity == null) {
+                continue;
+            }
+            keys[i] = Distance.between(entity, origin);
+            order[count++] = i;
+        }
+        Arrays.sort(order, 0, count, (a, b) -> Double.compare(keys[a], keys[b]));
+
+        int[] sorted = new int[count];
+        double[] distances = new double[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = order[i];
+            distances[i] = keys[order[i]];
+        }
+        return new DistanceSortedResultSet<>(view.select(sorted, count), origin, distances);
+    }
+
+    /**
+     * @return the coordinate distances were measured from
+     */
+    public Coordinate getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Returns the cached distance of the entity at the given position.
+     *
+     * @param index position in this result set
+     * @return distance to {@link #getOrigin()}
+     */
+    public double distance(int index) {
+        Objects.checkIndex(index, results.size());
+        return distances[index];
+    }
+
+    /**
+     * Returns the leading entities whose distance does not exceed {@code maxDistance}. The boundary is located
+     * by binary search over the cached distances.
+     *
+     * @param maxDistance maximum allowed distance
+     * @return distance-sorted prefix of this result set
+     */
+    public DistanceSortedResultSet<T> within(double maxDistance) {
+        int low = 0, high = results.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(distances[mid], maxDistance) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == results.size()) {
+            return this;
+        }
+        return new DistanceSortedResultSet<>(results.subList(0, low), origin, distances);
+    }
+
+    @Override
+    public T nearestWithin(Coordinate coordinate, double maxDistance) {
+        if (origin.equals(coordinate)) {
+            return !results.isEmpty() && !(distances[0] > maxDistance) ? results.get(0) : null;
+        }
+        return super.nearestWithin(coordinate, maxDistance);
+    }
+}
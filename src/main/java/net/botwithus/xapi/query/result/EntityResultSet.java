@@ -5,12 +5,12 @@ import net.botwithus.rs3.entities.LocalPlayer;
 import net.botwithus.rs3.world.Coordinate;
 import net.botwithus.rs3.world.Distance;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.function.Predicate;
 
 public class EntityResultSet<T extends Entity> extends ResultSet<T> {
 
@@ -43,13 +43,10 @@ public class EntityResultSet<T extends Entity> extends ResultSet<T> {
      * @param <E> entity type
      * @return result set sorted by increasing distance
      */
-    public static <E extends Entity> EntityResultSet<E> sortedByDistance(Collection<E> entities, Coordinate coordinate) {
+    public static <E extends Entity> DistanceSortedResultSet<E> sortedByDistance(Collection<E> entities, Coordinate coordinate) {
         Objects.requireNonNull(entities, "entities");
         Objects.requireNonNull(coordinate, "coordinate");
-        return new EntityResultSet<>(entities.stream()
-                .filter(Objects::nonNull)
-                .sorted(distanceComparator(coordinate))
-                .toList());
+        return DistanceSortedResultSet.of(entities.stream().filter(Objects::nonNull).toList(), coordinate);
     }
 
     /**
@@ -59,10 +56,7 @@ public class EntityResultSet<T extends Entity> extends ResultSet<T> {
      * @return the nearest entity, or null if no entities are found
      */
     public T nearestTo(Coordinate coordinate) {
-        if (coordinate == null) {
-            return null;
-        }
-        return sortedBy(coordinate).map(list -> list.get(0)).orElse(null);
+        return nearestWithin(coordinate, Double.POSITIVE_INFINITY);
     }
 
     /**
@@ -76,7 +70,23 @@ public class EntityResultSet<T extends Entity> extends ResultSet<T> {
         if (coordinate == null) {
             return null;
         }
-        return filteredByDistance(coordinate, maxDistance).map(list -> list.get(0)).orElse(null);
+        T nearest = null;
+        double nearestDistance = Double.NaN;
+        for (int i = 0; i < results.size(); i++) {
+            var entity = results.get(i);
+            if (entity == null) {
+                continue;
+            }
+            double distance = Distance.between(entity, coordinate);
+            if (distance > maxDistance) {
+                continue;
+            }
+            if (nearest == null || Double.compare(distance, nearestDistance) < 0) {
+                nearest = entity;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
     }
 
     /**
@@ -93,7 +103,7 @@ public class EntityResultSet<T extends Entity> extends ResultSet<T> {
      * Finds the nearest entity to the given entity within the provided distance.
      *
      * @param entity reference entity
-     *     * @param maxDistance maximum allowed distance
+     * @param maxDistance maximum allowed distance
      * @return nearest entity within distance or {@code null}
      */
     public T nearestWithin(Entity entity, double maxDistance) {
@@ -128,51 +138,191 @@ public class EntityResultSet<T extends Entity> extends ResultSet<T> {
     }
 
     /**
-     * Removes all entities in the given result set from this result set.
+     * Finds up to {@code k} entities nearest to the local player.
+     *
+     * @param k maximum number of entities to return
+     * @return entities ordered by increasing distance
+     */
+    public EntityResultSet<T> nearestK(int k) {
+        var player = LocalPlayer.self();
+        if (player == null || player.getCoordinate() == null) {
+            return new EntityResultSet<>(Collections.emptyList());
+        }
+        return nearestK(player.getCoordinate(), k);
+    }
+
+    /**
+     * Finds up to {@code k} entities nearest to the given coordinate. A bounded max-heap keeps the selection at
+     * O(n log k) and each distance is computed exactly once.
+     *
+     * @param coordinate reference coordinate
+     * @param k maximum number of entities to return
+     * @return entities ordered by increasing distance
+     */
+    public EntityResultSet<T> nearestK(Coordinate coordinate, int k) {
+        if (coordinate == null || k <= 0 || results.isEmpty()) {
+            return new EntityResultSet<>(Collections.emptyList());
+        }
+        int capacity = Math.min(k, results.size());
+        int[] heap = new int[capacity];
+        double[] heapDistance = new double[capacity];
+        int size = 0;
+        for (int i = 0; i < results.size(); i++) {
+            var entity = results.get(i);
+            if (entity == null) {
+                continue;
+            }
+            double distance = Distance.between(entity, coordinate);
+            if (size < capacity) {
+                heap[size] = i;
+                heapDistance[size] = distance;
+                siftUp(heap, heapDistance, size++);
+            } else if (isCloser(distance, i, heapDistance[0], heap[0])) {
+                heap[0] = i;
+                heapDistance[0] = distance;
+                siftDown(heap, heapDistance, size);
+            }
+        }
+        int[] nearest = new int[size];
+        for (int end = size - 1; end >= 0; end--) {
+            nearest[end] = heap[0];
+            heap[0] = heap[end];
+            heapDistance[0] = heapDistance[end];
+            siftDown(heap, heapDistance, end);
+        }
+        return derive(view().select(nearest, size));
+    }
+
+    /**
+     * Returns this result set ordered by increasing distance to the given coordinate. Each distance is computed
+     * once and kept alongside the sorted entities.
+     *
+     * @param coordinate reference coordinate
+     * @return distance-sorted view of the non-null entities
+     */
+    public DistanceSortedResultSet<T> sortedByDistance(Coordinate coordinate) {
+        Objects.requireNonNull(coordinate, "coordinate");
+        return DistanceSortedResultSet.of(results, coordinate);
+    }
+
+    /**
+     * Removes all entities in the given result set from this result set. Entities are matched by
+     * {@link ResultKey identity} through a hash lookup rather than by {@code equals}, so the cost is linear in both
+     * sets. Entities sharing a key are removed copy by copy: each entity of {@code set} removes one of them, the
+     * same way {@link #diff(ResultSet)} counts copies.
      *
      * @param set the result set to remove
      * @return a new EntityResultSet with the entities removed
      */
     public EntityResultSet<T> removeAll(ResultSet<T> set) {
-        List<T> copy = new ArrayList<>(results);
-        copy.removeAll(set.results);
-        return new EntityResultSet<>(copy);
+        return derive(ResultDiff.without(view(), set.results));
     }
 
     /**
-     * Removes the specified entity from this result set.
+     * Removes the first entity with the same {@link ResultKey identity} as the specified entity from this result
+     * set. Entities are matched by key rather than by {@code equals}, so a new wrapper of the same game object is
+     * removed too.
      *
      * @param toRemove the entity to remove
      * @return a new EntityResultSet with the entity removed
      */
     public EntityResultSet<T> remove(T toRemove) {
-        List<T> copy = new ArrayList<>(results);
-        copy.remove(toRemove);
-        return new EntityResultSet<>(copy);
+        var key = toRemove != null ? ResultKey.of(toRemove) : null;
+        for (int i = 0; i < results.size(); i++) {
+            var entity = results.get(i);
+            if (key == null ? entity == null : entity != null && key.equals(ResultKey.of(entity))) {
+                var view = view();
+                int[] kept = new int[results.size() - 1];
+                for (int j = 0, k = 0; j < results.size(); j++) {
+                    if (j != i) {
+                        kept[k++] = j;
+                    }
+                }
+                return derive(view.select(kept, kept.length));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Compares this result set against an earlier one of the same query. Npcs and players are matched by type and
+     * index, so an entity that walked is reported as moved rather than removed and added.
+     *
+     * @param previous earlier result set, may be {@code null}
+     * @return entities added, removed and moved since {@code previous}
+     */
+    public ResultDiff<T> diff(ResultSet<T> previous) {
+        return ResultDiff.of(previous != null ? previous.results : null, results, Entity::getCoordinate);
+    }
+
+    @Override
+    public EntityResultSet<T> randomK(int k) {
+        return (EntityResultSet<T>) super.randomK(k);
+    }
+
+    @Override
+    public EntityResultSet<T> subList(int fromIndex, int toIndex) {
+        return (EntityResultSet<T>) super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public EntityResultSet<T> filter(Predicate<? super T> filter) {
+        return (EntityResultSet<T>) super.filter(filter);
+    }
+
+    @Override
+    public EntityResultSet<T> sorted(Comparator<? super T> comparator) {
+        return (EntityResultSet<T>) super.sorted(comparator);
+    }
+
+    @Override
+    protected EntityResultSet<T> derive(List<T> view) {
+        return new EntityResultSet<>(view);
+    }
+
+    /**
+     * Heap order used by {@link #nearestK(Coordinate, int)}: farther entities rank higher, ties broken by position so
+     * the selection is deterministic.
+     */
+    private static boolean isCloser(double distance, int index, double otherDistance, int otherIndex) {
+        int compare = Double.compare(distance, otherDistance);
+        return compare < 0 || (compare == 0 && index < otherIndex);
     }
 
-    private Optional<List<T>> sortedBy(Coordinate coordinate) {
-        if (results.isEmpty()) {
-            return Optional.empty();
+    private static void siftUp(int[] heap, double[] distance, int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isCloser(distance[parent], heap[parent], distance[position], heap[position])) {
+                return;
+            }
+            swap(heap, distance, parent, position);
+            position = parent;
         }
-        List<T> copy = new ArrayList<>(results);
-        copy.removeIf(Objects::isNull);
-        copy.sort(distanceComparator(coordinate));
-        return copy.isEmpty() ? Optional.empty() : Optional.of(copy);
     }
 
-    private Optional<List<T>> filteredByDistance(Coordinate coordinate, double maxDistance) {
-        if (results.isEmpty()) {
-            return Optional.empty();
+    private static void siftDown(int[] heap, double[] distance, int size) {
+        int position = 0;
+        while (true) {
+            int left = position * 2 + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int farthest = right < size && isCloser(distance[left], heap[left], distance[right], heap[right]) ? right : left;
+            if (!isCloser(distance[position], heap[position], distance[farthest], heap[farthest])) {
+                return;
+            }
+            swap(heap, distance, position, farthest);
+            position = farthest;
         }
-        List<T> copy = new ArrayList<>(results);
-        copy.removeIf(Objects::isNull);
-        copy.removeIf(entity -> Distance.between(entity, coordinate) > maxDistance);
-        copy.sort(distanceComparator(coordinate));
-        return copy.isEmpty() ? Optional.empty() : Optional.of(copy);
     }
 
-    private static <E extends Entity> Comparator<E> distanceComparator(Coordinate coordinate) {
-        return Comparator.comparingDouble(entity -> Distance.between(entity, coordinate));
+    private static void swap(int[] heap, double[] distance, int a, int b) {
+        int index = heap[a];
+        heap[a] = heap[b];
+        heap[b] = index;
+        double value = distance[a];
+        distance[a] = distance[b];
+        distance[b] = value;
     }
 }
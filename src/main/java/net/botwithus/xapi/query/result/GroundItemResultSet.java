@@ -7,7 +7,7 @@ import net.botwithus.rs3.world.Distance;
 
 import java.util.Comparator;
 import java.util.List;
-import java.util.Objects;
+import java.util.function.Predicate;
 
 public class GroundItemResultSet extends ResultSet<GroundItem> {
 
@@ -27,11 +27,67 @@ public class GroundItemResultSet extends ResultSet<GroundItem> {
         if (coordinate == null) {
             return null;
         }
-        return results.stream()
-                .filter(Objects::nonNull)
-                .filter(item -> item.getStack() != null && item.getStack().getCoordinate() != null)
-                .filter(item -> Distance.between(item.getStack().getCoordinate(), coordinate) <= maxDistance)
-                .min(Comparator.comparingDouble(item -> Distance.between(item.getStack().getCoordinate(), coordinate)))
-                .orElse(null);
+        GroundItem nearest = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < results.size(); i++) {
+            var item = results.get(i);
+            if (item == null || item.getStack() == null || item.getStack().getCoordinate() == null) {
+                continue;
+            }
+            double distance = Distance.between(item.getStack().getCoordinate(), coordinate);
+            if (distance <= maxDistance && (nearest == null || distance < nearestDistance)) {
+                nearest = item;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Compares this result set against an earlier one of the same query. Ground items are matched by item id and
+     * stack coordinate, so {@link ResultDiff#moved()} is always empty.
+     *
+     * @param previous earlier result set, may be {@code null}
+     * @return ground items added and removed since {@code previous}
+     */
+    public ResultDiff<GroundItem> diff(ResultSet<GroundItem> previous) {
+        return ResultDiff.of(previous != null ? previous.results : null, results, null);
+    }
+
+    /**
+     * Removes all ground items in the given result set from this result set, matching them by item id and stack
+     * coordinate rather than by {@code equals}. Items sharing both are removed copy by copy: each item of
+     * {@code set} removes one of them, the same way {@link #diff(ResultSet)} counts copies.
+     *
+     * @param set the result set to remove
+     * @return a new GroundItemResultSet with the items removed
+     */
+    public GroundItemResultSet removeAll(ResultSet<GroundItem> set) {
+        return derive(ResultDiff.without(view(), set.results));
+    }
+
+    @Override
+    public GroundItemResultSet randomK(int k) {
+        return (GroundItemResultSet) super.randomK(k);
+    }
+
+    @Override
+    public GroundItemResultSet subList(int fromIndex, int toIndex) {
+        return (GroundItemResultSet) super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public GroundItemResultSet filter(Predicate<? super GroundItem> filter) {
+        return (GroundItemResultSet) super.filter(filter);
+    }
+
+    @Override
+    public GroundItemResultSet sorted(Comparator<? super GroundItem> comparator) {
+        return (GroundItemResultSet) super.sorted(comparator);
+    }
+
+    @Override
+    protected GroundItemResultSet derive(List<GroundItem> view) {
+        return new GroundItemResultSet(view);
     }
 }
@@ -0,0 +1,103 @@
+package net.botwithus.xapi.query.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Difference between two result sets of the same query, usually taken on consecutive ticks. Results are matched by
+ * their {@link ResultKey}, so the comparison is linear in the size of both sets. Results sharing a key are matched
+ * copy by copy, so a change in how many there are shows up as added or removed copies.
+ *
+ * @param added results only present in the newer set
+ * @param removed results only present in the older set, as they were last seen
+ * @param moved results present in both sets whose position changed, as they are now
+ * @param <T> result type
+ */
+public record ResultDiff<T>(List<T> added, List<T> removed, List<T> moved) {
+
+    /**
+     * @return true when both sets hold the same results at the same positions
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && moved.isEmpty();
+    }
+
+    /**
+     * @param previous older results, may be {@code null}
+     * @param current newer results
+     * @param position position of a result, or {@code null} when results cannot move
+     */
+    static <T> ResultDiff<T> of(List<T> previous, List<T> current, Function<? super T, ?> position) {
+        Map<Object, T> before = keyed(previous == null ? Collections.emptyList() : previous);
+        List<T> added = new ArrayList<>();
+        List<T> moved = new ArrayList<>();
+        var keys = ResultKey.keysOf(current);
+        for (int i = 0; i < keys.length; i++) {
+            var result = current.get(i);
+            if (result == null) {
+                continue;
+            }
+            var old = before.remove(keys[i]);
+            if (old == null) {
+                added.add(result);
+            } else if (position != null && !Objects.equals(position.apply(old), position.apply(result))) {
+                moved.add(result);
+            }
+        }
+        return new ResultDiff<>(added, new ArrayList<>(before.values()), moved);
+    }
+
+    /**
+     * @return the results by {@link ResultKey#keysOf(List) occurrence key}, in their original order
+     */
+    private static <T> Map<Object, T> keyed(List<T> results) {
+        Map<Object, T> keyed = new LinkedHashMap<>(Math.max(16, results.size() * 2));
+        var keys = ResultKey.keysOf(results);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                keyed.put(keys[i], results.get(i));
+            }
+        }
+        return keyed;
+    }
+
+    /**
+     * Removes the results of {@code toRemove} copy by copy, the same way {@link ResultKey#keysOf(List)} counts them:
+     * for every result of {@code toRemove}, the first remaining result with its key is dropped.
+     *
+     * @return view of the remaining results, in their original order
+     */
+    static <T> ArrayView<T> without(ArrayView<T> results, Iterable<T> toRemove) {
+        Map<Object, Integer> counts = new HashMap<>();
+        for (var result : toRemove) {
+            if (result != null) {
+                counts.merge(ResultKey.of(result), 1, Integer::sum);
+            }
+        }
+        if (counts.isEmpty()) {
+            return results;
+        }
+        return results.filter(result -> {
+            if (result == null) {
+                return true;
+            }
+            var key = ResultKey.of(result);
+            var count = counts.get(key);
+            if (count == null) {
+                return true;
+            }
+            if (count > 1) {
+                counts.put(key, count - 1);
+            } else {
+                counts.remove(key);
+            }
+            return false;
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package net.botwithus.xapi.query.result;
+
+import net.botwithus.rs3.entities.PathingEntity;
+import net.botwithus.rs3.entities.SceneObject;
+import net.botwithus.rs3.interfaces.Component;
+import net.botwithus.rs3.item.GroundItem;
+import net.botwithus.rs3.item.InventoryItem;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stable identities for query results, used to match the same game object across ticks even when the client hands
+ * out a new wrapper for it.
+ * <ul>
+ *     <li>npcs and players: entity type and index</li>
+ *     <li>scene objects: type id and coordinate</li>
+ *     <li>ground items: item id and stack coordinate</li>
+ *     <li>inventory items: slot</li>
+ *     <li>components: interface, component and sub-component id</li>
+ * </ul>
+ * Anything else is its own key. Distinct results can share a key, such as two identical ground items on one tile;
+ * {@link #keysOf(List)} tells the copies apart by their order.
+ */
+public final class ResultKey {
+
+    private ResultKey() {
+    }
+
+    /**
+     * @param element query result
+     * @return key that is equal for the same game object on different ticks
+     */
+    public static Object of(Object element) {
+        if (element instanceof PathingEntity entity) {
+            return new Key(entity.getType(), entity.getIndex(), null);
+        }
+        if (element instanceof SceneObject object) {
+            return new Key(SceneObject.class, object.getTypeId(), object.getCoordinate());
+        }
+        if (element instanceof GroundItem item) {
+            return new Key(GroundItem.class, item.getId(), item.getStack() != null ? item.getStack().getCoordinate() : null);
+        }
+        if (element instanceof InventoryItem item) {
+            return new Key(InventoryItem.class, item.getSlot(), null);
+        }
+        if (element instanceof Component component) {
+            return new Key(Component.class, (long) component.getRoot().getInterfaceId() << 32 | component.getComponentId() & 0xFFFFFFFFL,
+                    component.getSubComponentId());
+        }
+        return element;
+    }
+
+    /**
+     * Returns the key of every result of a list. The first result with a given key gets the plain {@link #of(Object)
+     * key}; later results sharing it get the key paired with their occurrence count, so matching keys across two
+     * lists compares how many copies of each result there are.
+     *
+     * @param results query results
+     * @return keys in result order, {@code null} for {@code null} results
+     */
+    public static Object[] keysOf(List<?> results) {
+        var keys = new Object[results.size()];
+        Map<Object, Integer> seen = new HashMap<>(Math.max(16, results.size() * 2));
+        for (int i = 0; i < keys.length; i++) {
+            var element = results.get(i);
+            if (element == null) {
+                continue;
+            }
+            var key = of(element);
+            int occurrence = seen.merge(key, 1, Integer::sum) - 1;
+            keys[i] = occurrence == 0 ? key : new Occurrence(key, occurrence);
+        }
+        return keys;
+    }
+
+    /**
+     * Captures the observable state of a result. Two results with the same {@link #of(Object) key} but a different
+     * state are reported as changed.
+     *
+     * @param element query result
+     * @return value that differs when the result changed
+     */
+    public static Object stateOf(Object element) {
+        if (element instanceof PathingEntity entity) {
+            return Arrays.asList(entity.getCoordinate(), entity.getAnimationId(), entity.getHealth());
+        }
+        if (element instanceof SceneObject object) {
+            return Arrays.asList(object.getAnimationId(), object.isHidden());
+        }
+        if (element instanceof GroundItem item) {
+            return item.getQuantity();
+        }
+        if (element instanceof InventoryItem item) {
+            return Arrays.asList(item.getId(), item.getQuantity());
+        }
+        if (element instanceof Component component) {
+            return Arrays.asList(component.getItemId(), component.getItemAmount(), component.isHidden(), component.getText());
+        }
+        return element;
+    }
+
+    private record Key(Object kind, long id, Object location) {
+    }
+
+    private record Occurrence(Object key, int index) {
+    }
+}
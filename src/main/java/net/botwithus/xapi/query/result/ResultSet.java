@@ -2,25 +2,36 @@ package net.botwithus.xapi.query.result;
 
 import net.botwithus.util.Rand;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class ResultSet<T> implements Iterable<T> {
-    private static final java.util.Random RANDOM = Rand.getSecureThreadLocalRandom();
+    private static final Supplier<RandomGenerator> FAST_RANDOM = ThreadLocalRandom::current;
+    private static final Supplier<RandomGenerator> SECURE_RANDOM = Rand::getSecureThreadLocalRandom;
+    private static volatile Supplier<? extends RandomGenerator> randomSource = FAST_RANDOM;
     protected final List<T> results;
 
     /**
-     * Constructs a ResultSet with the given results.
+     * Constructs a ResultSet with the given results. The results are copied once into an immutable array; sets
+     * derived from this one share that array instead of copying it again.
      *
      * @param results the list of results
      */
     public ResultSet(List<T> results) {
-        this.results = results;
+        this.results = ArrayView.of(results);
     }
 
     /**
@@ -47,19 +58,121 @@ public class ResultSet<T> implements Iterable<T> {
         return results.get(results.size() - 1);
     }
 
+    /**
+     * Sets the randomness used by {@link #random()}, {@link #randomWeighted(ToDoubleFunction)} and
+     * {@link #randomK(int)} of every result set. The supplier is called once per pick, so it can hand out
+     * thread-local generators.
+     *
+     * @param source generator supplier, {@code null} restores the default fast thread-local generator
+     */
+    public static void setRandomSource(Supplier<? extends RandomGenerator> source) {
+        randomSource = source != null ? source : FAST_RANDOM;
+    }
+
+    /**
+     * Switches result set picks to the secure thread-local generator. Picks are considerably slower, so only use
+     * this where predictability matters more than cost.
+     *
+     * @param secure true for the secure generator, false for the default fast one
+     */
+    public static void useSecureRandom(boolean secure) {
+        randomSource = secure ? SECURE_RANDOM : FAST_RANDOM;
+    }
+
+    private static RandomGenerator randomGenerator() {
+        return randomSource.get();
+    }
+
     /**
      * Retrieves a random element from the result set.
      *
      * @return a random element, or null if the result set is empty
      */
     public T random() {
+        return random(randomGenerator());
+    }
+
+    /**
+     * Retrieves a random element using the given generator.
+     *
+     * @param random generator to draw from
+     * @return a random element, or null if the result set is empty
+     */
+    public T random(RandomGenerator random) {
         int size = results.size();
         if (size == 0) {
             return null;
         } else {
             // get a random element at the index between [0, size)
-            return results.get(RANDOM.nextInt(size));
+            return results.get(random.nextInt(size));
+        }
+    }
+
+    /**
+     * Picks an element with probability proportional to its weight. Each weight is computed once; elements with a
+     * weight that is not positive, or not a number, are never picked.
+     *
+     * @param weight weight of an element
+     * @return the picked element, or null if no element has a positive weight
+     */
+    public T randomWeighted(ToDoubleFunction<? super T> weight) {
+        Objects.requireNonNull(weight, "weight");
+        int size = results.size();
+        double[] cumulative = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            double w = weight.applyAsDouble(results.get(i));
+            if (w > 0 && w != Double.POSITIVE_INFINITY) {
+                total += w;
+            }
+            cumulative[i] = total;
+        }
+        if (!(total > 0)) {
+            return null;
+        }
+        double target = Math.min(randomGenerator().nextDouble() * total, Math.nextDown(total));
+        int low = 0, high = size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return results.get(low);
+    }
+
+    /**
+     * Picks {@code k} distinct elements uniformly at random, without shuffling the result set. Floyd's sampling
+     * draws exactly {@code k} random numbers and the picks keep their order in this result set.
+     *
+     * @param k number of elements to pick
+     * @return view of the picked elements, or this result set when it has no more than {@code k} elements
+     */
+    public ResultSet<T> randomK(int k) {
+        int size = results.size();
+        if (k >= size) {
+            return this;
+        }
+        if (k <= 0) {
+            return derive(ArrayView.empty());
+        }
+        var random = randomGenerator();
+        var picked = new HashSet<Integer>(k * 2);
+        for (int j = size - k; j < size; j++) {
+            int index = random.nextInt(j + 1);
+            if (!picked.add(index)) {
+                picked.add(j);
+            }
+        }
+        int[] indexes = new int[k];
+        int count = 0;
+        for (int index : picked) {
+            indexes[count++] = index;
         }
+        Arrays.sort(indexes);
+        return derive(view().select(indexes, k));
     }
 
     /**
@@ -93,6 +206,53 @@ public class ResultSet<T> implements Iterable<T> {
         return results.stream().collect(Collectors.groupingBy(classifier));
     }
 
+    /**
+     * Returns a view of a range of this result set without copying it.
+     *
+     * @param fromIndex first position, inclusive
+     * @param toIndex last position, exclusive
+     * @return result set of the range
+     */
+    public ResultSet<T> subList(int fromIndex, int toIndex) {
+        return derive(view().subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Returns a view of the elements accepted by the filter, in their current order.
+     *
+     * @param filter elements to keep
+     * @return filtered result set
+     */
+    public ResultSet<T> filter(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter, "filter");
+        return derive(view().filter(filter));
+    }
+
+    /**
+     * Returns a view of this result set in the given order. The sort is stable and only reorders indexes.
+     *
+     * @param comparator element order
+     * @return sorted result set
+     */
+    public ResultSet<T> sorted(Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator, "comparator");
+        return derive(view().sorted(comparator));
+    }
+
+    /**
+     * Wraps a view derived from this result set. Subclasses override it so derived sets keep their type.
+     *
+     * @param view derived elements
+     * @return result set over the view
+     */
+    protected ResultSet<T> derive(List<T> view) {
+        return new ResultSet<>(view);
+    }
+
+    ArrayView<T> view() {
+        return (ArrayView<T>) results;
+    }
+
     /**
      * Returns the number of elements in the result set.
      *
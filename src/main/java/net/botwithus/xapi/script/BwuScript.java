@@ -11,6 +11,8 @@ import net.botwithus.scripts.Info;
 import net.botwithus.ui.workspace.ExtInfo;
 import net.botwithus.ui.workspace.Workspace;
 import net.botwithus.ui.workspace.WorkspaceExtension;
+import net.botwithus.xapi.game.inventory.ItemComponentIndex;
+import net.botwithus.xapi.query.base.SubscriptionRegistry;
 import net.botwithus.xapi.script.permissive.node.Branch;
 import net.botwithus.xapi.script.permissive.base.PermissiveScript;
 import net.botwithus.xapi.script.ui.BwuGraphicsContext;
@@ -123,6 +125,13 @@ public abstract class BwuScript extends PermissiveScript {
 
     @EventInfo(type = InventoryEvent.class)
     private void onInventoryEvent(InventoryEvent event) {
+        ItemComponentIndex.onInventoryEvent(event);
+        var previousRegistry = SubscriptionRegistry.bind(getSubscriptions());
+        try {
+            getSubscriptions().inventoryChanged(event);
+        } finally {
+            SubscriptionRegistry.bind(previousRegistry);
+        }
 
         // New Item Acquired
         if (event.oldItem().getId() <= -1 && event.newItem().getId() > -1) {
@@ -3,23 +3,31 @@ package net.botwithus.xapi.script.base;
 import net.botwithus.rs3.client.Client;
 import net.botwithus.scripts.Script;
 import net.botwithus.util.Rand;
+import net.botwithus.xapi.query.base.Query;
+import net.botwithus.xapi.query.base.QueryDelta;
+import net.botwithus.xapi.query.base.QuerySubscription;
+import net.botwithus.xapi.query.base.SubscriptionRegistry;
 
 import java.util.Arrays;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 public abstract class DelayableScript extends Script {
 
     private Callable<Boolean> delayUntil = null,
             delayWhile = null;
     private int ticksToDelay = -1, previousTick, currentTick;
+    private final SubscriptionRegistry subscriptions = new SubscriptionRegistry();
 
     @Override
     public void run() {
+        var previousRegistry = SubscriptionRegistry.bind(subscriptions);
         try {
             currentTick = Client.getServerTick();
             if (currentTick <= previousTick) {
                 return;
             }
+            subscriptions.tick(currentTick);
 
             if (delayUntil != null) {
                 if (delayUntil.call() || ticksToDelay <= 0) {
@@ -47,9 +55,42 @@ public abstract class DelayableScript extends Script {
         } catch (Exception e) {
             println("Exception: " + e.getMessage() + "\n" + Arrays.toString(e.getStackTrace()));
             e.printStackTrace();
+        } finally {
+            SubscriptionRegistry.bind(previousRegistry);
         }
     }
 
+    @Override
+    public void onDeactivation() {
+        super.onDeactivation();
+        subscriptions.cancelAll();
+    }
+
+    /**
+     * Subscribes to a query on behalf of this script, from any thread. The subscription is driven by this script's
+     * loop and cancelled when the script is deactivated.
+     *
+     * @param query query to subscribe to
+     * @param listener receives every non-empty delta
+     * @param <T> result type
+     * @return handle used to read the current results and to cancel the subscription
+     */
+    public <T> QuerySubscription<T> subscribe(Query<T, ?> query, Consumer<QueryDelta<T>> listener) {
+        var previous = SubscriptionRegistry.bind(subscriptions);
+        try {
+            return query.subscribe(listener);
+        } finally {
+            SubscriptionRegistry.bind(previous);
+        }
+    }
+
+    /**
+     * @return the query subscriptions owned by this script
+     */
+    public SubscriptionRegistry getSubscriptions() {
+        return subscriptions;
+    }
+
     public abstract void doRun();
 
     public void delayUntil(Callable<Boolean> condition, int timeoutTicks) {
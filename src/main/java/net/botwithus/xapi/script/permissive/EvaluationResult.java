@@ -1,5 +1,11 @@
 package net.botwithus.xapi.script.permissive;
 
+/**
+ * Immutable record of one evaluation: its value, when it was taken and how long it stays valid.
+ * <p>
+ * Permissives and tree nodes keep their latest evaluation in primitive fields and only create an instance when one
+ * is requested, for example for JSON export or the UI.
+ */
 public class EvaluationResult<T> {
     private final T result;
     private final int expirationTime;
@@ -19,10 +25,25 @@ public class EvaluationResult<T> {
         this.resultTime = System.currentTimeMillis();
     }
 
+    /**
+     * @param result evaluated value
+     * @param expirationTime milliseconds the value stays valid
+     * @param resultTime {@link System#currentTimeMillis()} at which the value was evaluated
+     */
+    public EvaluationResult(T result, int expirationTime, long resultTime) {
+        this.result = result;
+        this.expirationTime = expirationTime;
+        this.resultTime = resultTime;
+    }
+
     public boolean isValid() {
         return System.currentTimeMillis() - resultTime <= expirationTime;
     }
 
+    public long getResultTime() {
+        return resultTime;
+    }
+
     public T getResult() {
         return result;
     }
@@ -23,10 +23,12 @@ public class Interlock {
         for (Permissive permissive : permissives) {
             if (!permissive.get()) {
                 firstOut = permissive;
+                TreeTrace.interlock(this, permissive, false);
                 return false;
             }
         }
         firstOut = null;
+        TreeTrace.interlock(this, null, true);
         return true;
     }
 
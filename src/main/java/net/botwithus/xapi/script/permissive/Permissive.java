@@ -1,5 +1,6 @@
 package net.botwithus.xapi.script.permissive;
 
+import net.botwithus.rs3.client.Client;
 import net.botwithus.xapi.script.permissive.base.PermissiveScript;
 import net.botwithus.xapi.script.permissive.serialization.PermissiveJson;
 import org.slf4j.Logger;
@@ -7,39 +8,120 @@ import org.slf4j.LoggerFactory;
 
 import java.util.function.Supplier;
 
+/**
+ * Named condition evaluated by {@link Interlock}s.
+ * <p>
+ * A permissive evaluates its predicate at most once per server tick: later calls on the same tick, for example from
+ * other interlocks sharing it, return the cached {@link #getLastResult() result}. Permissives whose predicate can
+ * change within a tick are marked {@link #setVolatile(boolean) volatile} and evaluate on every call.
+ */
 public class Permissive implements Supplier<Boolean> {
 
     private static final Logger logger = LoggerFactory.getLogger(Permissive.class);
+    private static final int NOT_EVALUATED = Integer.MIN_VALUE;
+    private static final int EXPIRATION_TIME = 2000;
 
     private final String name;
     private final Supplier<Boolean> predicate;
-    private EvaluationResult<Boolean> lastResult = new EvaluationResult<>(false);
+    private volatile boolean lastValue;
+    private volatile long lastResultTime = System.currentTimeMillis();
+    private volatile EvaluationResult<Boolean> snapshot;
+    private volatile int lastTick = NOT_EVALUATED;
+    private volatile boolean isVolatile;
 
     public Permissive(String name, Supplier<Boolean> predicate) {
         this.name = name;
         this.predicate = predicate;
     }
 
+    public Permissive(String name, Supplier<Boolean> predicate, boolean isVolatile) {
+        this(name, predicate);
+        this.isVolatile = isVolatile;
+    }
+
     @Override
     public Boolean get() {
+        int tick = isVolatile ? NOT_EVALUATED : Client.getServerTick();
+        if (tick != NOT_EVALUATED && tick == lastTick) {
+            return lastValue;
+        }
+        lastTick = NOT_EVALUATED;
         try {
             boolean result = predicate.get();
-            logger.info("    [Permissive] " + name + ": " + result);
-            lastResult = new EvaluationResult<>(result);
+            TreeTrace.permissive(this, result);
+            record(result, tick);
             return result;
         } catch (Exception e) {
             logger.error("Exception thrown in permissive predicate: " + name + "\n" + e.getMessage(), e);
-            lastResult = new EvaluationResult<>(false);
+            record(false, tick);
             return false;
         }
     }
 
+    private void record(boolean value, int tick) {
+        lastResultTime = System.currentTimeMillis();
+        lastValue = value;
+        snapshot = null;
+        lastTick = tick;
+    }
+
+    /**
+     * @return true when the predicate is evaluated on every call instead of once per server tick
+     */
+    public boolean isVolatile() {
+        return isVolatile;
+    }
+
+    /**
+     * Opts this permissive out of per-tick memoization, for predicates that can change within a tick such as
+     * timers or state toggled by leaves.
+     *
+     * @param isVolatile true to evaluate on every call
+     * @return this permissive
+     */
+    public Permissive setVolatile(boolean isVolatile) {
+        this.isVolatile = isVolatile;
+        lastTick = NOT_EVALUATED;
+        return this;
+    }
+
+    /**
+     * Forgets the result memoized for the current tick, so the next call evaluates the predicate again.
+     */
+    public void invalidate() {
+        lastTick = NOT_EVALUATED;
+    }
+
     public String getName() {
         return name;
     }
 
+    /**
+     * @return value of the latest evaluation, {@code false} before the first one
+     */
+    public boolean getLastValue() {
+        return lastValue;
+    }
+
+    /**
+     * @return {@link System#currentTimeMillis()} at the latest evaluation
+     */
+    public long getLastResultTime() {
+        return lastResultTime;
+    }
+
+    /**
+     * Returns the latest evaluation as a result object. The object is created on first request and reused until
+     * the permissive evaluates again.
+     *
+     * @return latest evaluation
+     */
     public EvaluationResult<Boolean> getLastResult() {
-        return lastResult;
+        var local = snapshot;
+        if (local == null) {
+            snapshot = local = new EvaluationResult<>(lastValue, EXPIRATION_TIME, lastResultTime);
+        }
+        return local;
     }
 
     /**
@@ -49,7 +131,7 @@ public class Permissive implements Supplier<Boolean> {
     public PermissiveJson toJson() {
         PermissiveJson json = new PermissiveJson();
         json.setName(name);
-        json.setLastResult(lastResult.getResult());
+        json.setLastResult(lastValue);
         return json;
     }
 }
@@ -0,0 +1,178 @@
+package net.botwithus.xapi.script.permissive;
+
+import com.google.gson.Gson;
+import net.botwithus.xapi.script.permissive.serialization.InterlockJson;
+import net.botwithus.xapi.script.permissive.serialization.PermissiveJson;
+import net.botwithus.xapi.script.permissive.serialization.TraceDictionaryJson;
+import net.botwithus.xapi.script.permissive.serialization.TreeNodeJson;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Turns files written by {@link TraceRecorder} back into readable lines. Ids are resolved against the dictionary
+ * of the epoch the records belong to, which the epoch records of the trace switch between, so records from before
+ * a recompile still decode against the tree they were recorded with.
+ * <pre>{@code
+ * var decoder = TraceDecoder.load(Path.of("traces", "tree.trc"));
+ * decoder.decode(Path.of("traces", "tree.trc.1")).forEach(System.out::println);
+ * }</pre>
+ */
+public final class TraceDecoder {
+
+    private final IntFunction<TraceDictionaryJson> dictionaries;
+    private final Map<Integer, TraceDictionaryJson> loaded = new HashMap<>();
+    private List<TreeNodeJson> nodes = List.of();
+    private List<InterlockJson> interlocks = List.of();
+
+    /**
+     * @param dictionaries supplies the dictionary of an epoch, or {@code null} when it is unknown
+     */
+    public TraceDecoder(IntFunction<TraceDictionaryJson> dictionaries) {
+        this.dictionaries = Objects.requireNonNull(dictionaries, "dictionaries");
+    }
+
+    /**
+     * @param traceFile trace file the recorder was created with; the dictionaries of every epoch are read from
+     *                  {@link TraceRecorder#getTreeFile(int) next to it} when first needed
+     * @return decoder for that trace file and the files rolled from it
+     */
+    public static TraceDecoder load(Path traceFile) {
+        return new TraceDecoder(epoch -> {
+            var dictionaryFile = TraceRecorder.dictionaryFile(traceFile, epoch);
+            try (Reader reader = Files.newBufferedReader(dictionaryFile, StandardCharsets.UTF_8)) {
+                return new Gson().fromJson(reader, TraceDictionaryJson.class);
+            } catch (IOException e) {
+                return null;
+            }
+        });
+    }
+
+    private void switchTo(int epoch) {
+        var dictionary = loaded.computeIfAbsent(epoch, dictionaries::apply);
+        nodes = dictionary != null && dictionary.getNodes() != null ? dictionary.getNodes() : List.of();
+        interlocks = dictionary != null && dictionary.getInterlocks() != null ? dictionary.getInterlocks() : List.of();
+    }
+
+    /**
+     * @param traceFile trace file
+     * @return one line per record
+     * @throws IOException if the file cannot be read or is not a trace file
+     */
+    public List<String> decode(Path traceFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(traceFile)) {
+            decode(in, lines::add);
+        }
+        return lines;
+    }
+
+    /**
+     * Reads a trace and passes one line per record to a consumer. A record cut off at the end of the stream is
+     * ignored.
+     *
+     * @param in trace stream, positioned at its header
+     * @param lines receiver of the decoded lines
+     * @throws IOException if the stream cannot be read or is not a trace
+     */
+    public void decode(InputStream in, Consumer<String> lines) throws IOException {
+        var data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != TraceRecorder.MAGIC) {
+            throw new IOException("Not a permissive trace file");
+        }
+        short version = data.readShort();
+        if (version != TraceRecorder.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+        nodes = List.of();
+        interlocks = List.of();
+        long start = Long.MIN_VALUE;
+        while (true) {
+            int tick;
+            byte type;
+            boolean result;
+            int node, interlock, permissive;
+            long nanos;
+            try {
+                tick = data.readInt();
+                type = data.readByte();
+                result = data.readByte() != 0;
+                node = data.readInt();
+                interlock = data.readInt();
+                permissive = data.readInt();
+                nanos = data.readLong();
+            } catch (EOFException e) {
+                return;
+            }
+            if (start == Long.MIN_VALUE) {
+                start = nanos;
+            }
+            if (type == TraceRecorder.EPOCH) {
+                switchTo(node);
+            }
+            lines.accept(format(tick, type, result, node, interlock, permissive, (nanos - start) / 1_000_000d));
+        }
+    }
+
+    private String format(int tick, byte type, boolean result, int node, int interlock, int permissive, double millis) {
+        var line = new StringBuilder(96);
+        line.append("[tick ").append(tick).append("] +").append(String.format("%.3f", millis)).append("ms ");
+        switch (type) {
+            case TraceRecorder.BRANCH -> {
+                line.append("BRANCH \"").append(nodeDesc(node)).append("\" ").append(result ? "SUCCESS" : "NOT_MET");
+                if (interlock >= 0) {
+                    line.append(" via \"").append(interlockName(interlock)).append('"');
+                }
+            }
+            case TraceRecorder.INTERLOCK -> {
+                line.append("INTERLOCK \"").append(interlockName(interlock)).append("\" ")
+                        .append(result ? "MET" : "NOT_MET");
+                if (permissive >= 0) {
+                    line.append(" first out \"").append(permissiveName(interlock, permissive)).append('"');
+                }
+            }
+            case TraceRecorder.EXECUTE -> line.append("EXECUTE \"").append(nodeDesc(node)).append('"');
+            case TraceRecorder.EPOCH -> line.append("EPOCH ").append(node)
+                    .append(loaded.get(node) == null ? " (dictionary missing)" : "");
+            default -> line.append("UNKNOWN ").append(type);
+        }
+        return line.toString();
+    }
+
+    private String nodeDesc(int id) {
+        if (id < 0 || id >= nodes.size()) {
+            return "<node " + id + ">";
+        }
+        var node = nodes.get(id);
+        var desc = node.getDescription();
+        return desc != null && !desc.isEmpty() ? desc : node.getNodeClass();
+    }
+
+    private String interlockName(int id) {
+        return id >= 0 && id < interlocks.size() ? interlocks.get(id).getName() : "<interlock " + id + ">";
+    }
+
+    private String permissiveName(int interlock, int id) {
+        if (interlock >= 0 && interlock < interlocks.size()) {
+            List<PermissiveJson> permissives = interlocks.get(interlock).getPermissives();
+            if (permissives != null && id < permissives.size()) {
+                return permissives.get(id).getName();
+            }
+        }
+        return "<permissive " + id + ">";
+    }
+}
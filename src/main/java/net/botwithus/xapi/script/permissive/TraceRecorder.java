@@ -0,0 +1,454 @@
+package net.botwithus.xapi.script.permissive;
+
+import com.google.gson.GsonBuilder;
+import net.botwithus.rs3.client.Client;
+import net.botwithus.xapi.script.permissive.node.Branch;
+import net.botwithus.xapi.script.permissive.node.TreeNode;
+import net.botwithus.xapi.script.permissive.serialization.InterlockJson;
+import net.botwithus.xapi.script.permissive.serialization.PermissiveJson;
+import net.botwithus.xapi.script.permissive.serialization.TraceDictionaryJson;
+import net.botwithus.xapi.script.permissive.serialization.TreeNodeJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link TreeTrace.Sink} recording tree decisions as compact binary records into a fixed-size, lock-free ring
+ * buffer, drained by a background thread to a rolling file.
+ * <p>
+ * Each record holds the server tick, the kind of event, its result, the ids of the node, interlock and first-out
+ * permissive involved and {@link System#nanoTime()}. Recording claims a slot with one atomic increment and writes
+ * four longs, so it neither locks nor allocates. When the drain thread falls a full buffer behind, the oldest
+ * records are overwritten and counted as {@link #getDropped() dropped}.
+ * <p>
+ * Ids refer to the tree passed to the latest {@link #register(TreeNode)}. Each registration starts a new epoch: an
+ * epoch record is written into the trace, and the drain thread writes the dictionary of that epoch's ids to its own
+ * {@link #getTreeFile(int) file} next to the trace. Every trace file also starts with the epoch record current when
+ * it was opened, so {@link TraceDecoder} resolves records of any file, rolled ones included, against the tree they
+ * were recorded with. Only
+ * static children are followed, so registering never runs node callables. Each node and interlock gets one id the
+ * first time the pre-order walk reaches it, success before failure; a permissive id is its index in its interlock.
+ * Nodes or interlocks the walk did not reach, such as children only known through a callable, are recorded with
+ * id {@code -1}.
+ * <pre>{@code
+ * var recorder = new TraceRecorder(Path.of("traces", "tree.trc")).start();
+ * recorder.register(rootNode);
+ * }</pre>
+ */
+public final class TraceRecorder implements TreeTrace.Sink, AutoCloseable {
+
+    static final int MAGIC = 0x50545243;
+    static final short VERSION = 2;
+    static final byte BRANCH = 1;
+    static final byte INTERLOCK = 2;
+    static final byte EXECUTE = 3;
+    static final byte EPOCH = 4;
+
+    /**
+     * Records kept in memory when no capacity is given.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /**
+     * Size at which the trace file is rolled when no limit is given.
+     */
+    public static final long DEFAULT_MAX_FILE_BYTES = 16L << 20;
+    /**
+     * Trace files kept, including the current one, when no count is given.
+     */
+    public static final int DEFAULT_MAX_FILES = 4;
+
+    private static final Logger logger = LoggerFactory.getLogger(TraceRecorder.class);
+    private static final int LONGS_PER_RECORD = 4;
+    private static final int RECORD_BYTES = 26;
+    private static final int MAX_DEPTH = 512;
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final int mask;
+    private final long[] buffer;
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Queue<Epoch> pendingDictionaries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger epochs = new AtomicInteger();
+    private volatile Registry registry = Registry.EMPTY;
+    private volatile boolean running;
+    private volatile Thread drainThread;
+    private long tail;
+    private DataOutputStream out;
+    private long fileBytes;
+    private long[] epochRecord;
+
+    /**
+     * @param file trace file; rolled files get a {@code .1}, {@code .2}, ... suffix
+     */
+    public TraceRecorder(Path file) {
+        this(file, DEFAULT_CAPACITY, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    /**
+     * @param file trace file; rolled files get a {@code .1}, {@code .2}, ... suffix
+     * @param capacity records kept in memory, rounded up to a power of two
+     * @param maxFileBytes size at which the trace file is rolled
+     * @param maxFiles trace files kept, including the current one
+     */
+    public TraceRecorder(Path file, int capacity, long maxFileBytes, int maxFiles) {
+        if (capacity <= 0 || maxFileBytes <= 0 || maxFiles <= 0) {
+            throw new IllegalArgumentException("capacity, maxFileBytes and maxFiles must be positive");
+        }
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 24) * 2 - 1);
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.mask = size - 1;
+        this.buffer = new long[size * LONGS_PER_RECORD];
+        this.published = new AtomicLongArray(size);
+    }
+
+    /**
+     * Opens the trace file, starts the drain thread and installs this recorder as the {@link TreeTrace} sink.
+     *
+     * @return this recorder
+     * @throws IOException if the trace file cannot be opened
+     */
+    public synchronized TraceRecorder start() throws IOException {
+        if (running) {
+            return this;
+        }
+        open();
+        running = true;
+        drainThread = new Thread(this::drainLoop, "permissive-trace-recorder");
+        drainThread.setDaemon(true);
+        drainThread.start();
+        TreeTrace.setSink(this);
+        return this;
+    }
+
+    /**
+     * Numbers the nodes and interlocks of a tree, starts a new epoch with these ids and queues their dictionary for
+     * the drain thread, which writes it to {@link #getTreeFile(int)}. Events of nodes in the tree are recorded with
+     * these ids from now on.
+     *
+     * @param root root of the tree
+     * @return the epoch of the registration
+     */
+    public int register(TreeNode root) {
+        var next = new Registry(new IdentityHashMap<>(), new IdentityHashMap<>());
+        var dictionary = new TraceDictionaryJson();
+        dictionary.setNodes(new ArrayList<>());
+        dictionary.setInterlocks(new ArrayList<>());
+        walk(root, next, dictionary, 0);
+        int epoch = epochs.getAndIncrement();
+        registry = next;
+        pendingDictionaries.add(new Epoch(epoch, dictionary));
+        record(EPOCH, true, epoch, -1, -1);
+        LockSupport.unpark(drainThread);
+        return epoch;
+    }
+
+    private static void walk(TreeNode node, Registry registry, TraceDictionaryJson dictionary, int depth) {
+        if (node == null || depth > MAX_DEPTH || registry.nodes.putIfAbsent(node, registry.nodes.size()) != null) {
+            return;
+        }
+        var json = new TreeNodeJson();
+        json.setType(node.isLeaf() ? "leaf" : "branch");
+        json.setNodeClass(node.getClass().getSimpleName());
+        json.setDescription(node.getDesc());
+        json.setDefinedIn(node.getDefinedIn());
+        dictionary.getNodes().add(json);
+        if (!(node instanceof Branch branch)) {
+            return;
+        }
+        if (branch.getInterlocks() != null) {
+            for (var interlock : branch.getInterlocks()) {
+                if (interlock != null && registry.interlocks.putIfAbsent(interlock, registry.interlocks.size()) == null) {
+                    dictionary.getInterlocks().add(describe(interlock));
+                }
+            }
+        }
+        walk(branch.getStaticSuccess(), registry, dictionary, depth + 1);
+        walk(branch.getStaticFailure(), registry, dictionary, depth + 1);
+    }
+
+    private static InterlockJson describe(Interlock interlock) {
+        var json = new InterlockJson();
+        json.setName(interlock.getName());
+        List<PermissiveJson> permissives = new ArrayList<>();
+        if (interlock.getPermissives() != null) {
+            for (var permissive : interlock.getPermissives()) {
+                var permissiveJson = new PermissiveJson();
+                permissiveJson.setName(permissive != null ? permissive.getName() : null);
+                permissives.add(permissiveJson);
+            }
+        }
+        json.setPermissives(permissives);
+        return json;
+    }
+
+    private void writeDictionaries() {
+        Epoch pending;
+        while ((pending = pendingDictionaries.poll()) != null) {
+            var target = getTreeFile(pending.epoch());
+            try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                new GsonBuilder().setPrettyPrinting().create().toJson(pending.dictionary(), writer);
+            } catch (IOException e) {
+                logger.warn("Failed to write trace dictionary {}: {}", target, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param epoch epoch returned by {@link #register(TreeNode)}
+     * @return file holding the id dictionary of that epoch
+     */
+    public Path getTreeFile(int epoch) {
+        return dictionaryFile(file, epoch);
+    }
+
+    /**
+     * @param file trace file a recorder was created with
+     * @param epoch registration epoch
+     * @return file holding the id dictionary of that epoch
+     */
+    static Path dictionaryFile(Path file, int epoch) {
+        return file.resolveSibling(file.getFileName() + ".tree." + epoch + ".json");
+    }
+
+    /**
+     * @return records overwritten or torn before the drain thread reached them
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void branch(TreeNode node, Interlock active, boolean valid) {
+        var local = registry;
+        record(BRANCH, valid, local.nodeId(node), local.interlockId(active), -1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void interlock(Interlock interlock, Permissive firstOut, boolean active) {
+        int permissive = -1;
+        if (firstOut != null) {
+            var permissives = interlock.getPermissives();
+            for (int i = 0; i < permissives.length; i++) {
+                if (permissives[i] == firstOut) {
+                    permissive = i;
+                    break;
+                }
+            }
+        }
+        record(INTERLOCK, active, -1, registry.interlockId(interlock), permissive);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void execute(TreeNode leaf) {
+        record(EXECUTE, true, registry.nodeId(leaf), -1, -1);
+    }
+
+    private void record(byte type, boolean result, int node, int interlock, int permissive) {
+        long seq = head.getAndIncrement();
+        int slot = (int) (seq & mask);
+        int base = slot * LONGS_PER_RECORD;
+        published.set(slot, -1);
+        VarHandle.releaseFence();
+        buffer[base] = (long) Client.getServerTick() << 32 | (type & 0xFF) << 8 | (result ? 1 : 0);
+        buffer[base + 1] = (long) node << 32 | (interlock & 0xFFFFFFFFL);
+        buffer[base + 2] = permissive;
+        buffer[base + 3] = System.nanoTime();
+        published.setRelease(slot, seq + 1);
+    }
+
+    private void drainLoop() {
+        while (running) {
+            writeDictionaries();
+            if (drain() == 0) {
+                flush();
+                LockSupport.parkNanos(this, DRAIN_INTERVAL_NANOS);
+            }
+        }
+        writeDictionaries();
+        drain();
+        flush();
+    }
+
+    private int drain() {
+        long available = head.get();
+        int capacity = mask + 1;
+        if (available - tail > capacity) {
+            dropped.add(available - tail - capacity);
+            tail = available - capacity;
+        }
+        int drained = 0;
+        while (tail < available) {
+            int slot = (int) (tail & mask);
+            int base = slot * LONGS_PER_RECORD;
+            long expected = tail + 1;
+            long before = published.getAcquire(slot);
+            if (before != expected) {
+                if (before < expected) {
+                    break;
+                }
+                dropped.increment();
+                tail++;
+                continue;
+            }
+            long w0 = buffer[base], w1 = buffer[base + 1], w2 = buffer[base + 2], w3 = buffer[base + 3];
+            VarHandle.acquireFence();
+            if (published.get(slot) != expected) {
+                dropped.increment();
+                tail++;
+                continue;
+            }
+            write(w0, w1, w2, w3);
+            tail++;
+            drained++;
+        }
+        return drained;
+    }
+
+    private void write(long w0, long w1, long w2, long w3) {
+        if (out == null) {
+            return;
+        }
+        try {
+            if ((byte) (w0 >>> 8) == EPOCH) {
+                epochRecord = new long[]{w0, w1, w2, w3};
+            }
+            writeRecord(w0, w1, w2, w3);
+            if (fileBytes >= maxFileBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write trace file {}, recording stopped: {}", file, e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    private void writeRecord(long w0, long w1, long w2, long w3) throws IOException {
+        out.writeInt((int) (w0 >>> 32));
+        out.writeByte((int) (w0 >>> 8));
+        out.writeByte((int) w0 & 1);
+        out.writeInt((int) (w1 >>> 32));
+        out.writeInt((int) w1);
+        out.writeInt((int) w2);
+        out.writeLong(w3);
+        fileBytes += RECORD_BYTES;
+    }
+
+    private void open() throws IOException {
+        var parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        fileBytes = 6;
+        if (epochRecord != null) {
+            writeRecord(epochRecord[0], epochRecord[1], epochRecord[2], epochRecord[3]);
+        }
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        out = null;
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            var source = i == 1 ? file : rolled(i - 1);
+            if (Files.exists(source)) {
+                Files.move(source, rolled(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        open();
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void flush() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            logger.warn("Failed to flush trace file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException ignored) {
+        }
+        out = null;
+    }
+
+    /**
+     * Removes this recorder as the {@link TreeTrace} sink, drains the remaining records and closes the file.
+     */
+    @Override
+    public synchronized void close() {
+        if (TreeTrace.getSink() == this) {
+            TreeTrace.setSink(null);
+        }
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainThread);
+        try {
+            drainThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly();
+    }
+
+    private record Epoch(int epoch, TraceDictionaryJson dictionary) {
+    }
+
+    private record Registry(Map<TreeNode, Integer> nodes, Map<Interlock, Integer> interlocks) {
+        static final Registry EMPTY = new Registry(Map.of(), Map.of());
+
+        int nodeId(TreeNode node) {
+            var id = node == null ? null : nodes.get(node);
+            return id != null ? id : -1;
+        }
+
+        int interlockId(Interlock interlock) {
+            var id = interlock == null ? null : interlocks.get(interlock);
+            return id != null ? id : -1;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package net.botwithus.xapi.script.permissive;
+
+import net.botwithus.xapi.script.permissive.node.Branch;
+import net.botwithus.xapi.script.permissive.node.TreeNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Trace of permissive tree evaluation: branch decisions, interlock and permissive results and executed leaves.
+ * <p>
+ * Events are written to this class's logger at debug level with parameterized messages, and handed to an optional
+ * {@link Sink} such as a binary recorder. Every method checks the level and the sink before touching its
+ * arguments, so with debug off and no sink the evaluation path builds no strings and does no I/O. Enable the trace
+ * through the logging backend or {@link net.botwithus.xapi.script.permissive.base.PermissiveScript#setDebugMode}.
+ */
+public final class TreeTrace {
+
+    private static final Logger logger = LoggerFactory.getLogger(TreeTrace.class);
+    private static volatile Sink sink;
+
+    private TreeTrace() {
+    }
+
+    /**
+     * @return true when trace events are logged or recorded
+     */
+    public static boolean isEnabled() {
+        return sink != null || logger.isDebugEnabled();
+    }
+
+    /**
+     * Sets the sink receiving every trace event in addition to the logger.
+     *
+     * @param traceSink sink, or {@code null} to remove it
+     */
+    public static void setSink(Sink traceSink) {
+        sink = traceSink;
+    }
+
+    /**
+     * @return the current sink, or {@code null}
+     */
+    public static Sink getSink() {
+        return sink;
+    }
+
+    /**
+     * Records a branch decision.
+     *
+     * @param node validated node
+     * @param valid validation result
+     * @param next node the walk continues with, or {@code null}
+     */
+    public static void branch(TreeNode node, boolean valid, TreeNode next) {
+        var local = sink;
+        if (local != null) {
+            local.branch(node, node instanceof Branch branch ? branch.getActiveInterlock() : null, valid);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("[Node] \"{}\" {} -> {}", node.getDesc(), valid ? "SUCCESS" : "NOT_MET",
+                    next != null ? next.getDesc() : "null");
+        }
+    }
+
+    /**
+     * Records an interlock evaluation.
+     *
+     * @param interlock evaluated interlock
+     * @param firstOut first permissive that was not met, or {@code null} when the interlock is active
+     * @param active evaluation result
+     */
+    public static void interlock(Interlock interlock, Permissive firstOut, boolean active) {
+        var local = sink;
+        if (local != null) {
+            local.interlock(interlock, firstOut, active);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("  [Interlock] {}: {}{}", interlock.getName(), active,
+                    firstOut != null ? " (first out: " + firstOut.getName() + ")" : "");
+        }
+    }
+
+    /**
+     * Records a permissive evaluation.
+     *
+     * @param permissive evaluated permissive
+     * @param result evaluation result
+     */
+    public static void permissive(Permissive permissive, boolean result) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("    [Permissive] {}: {}", permissive.getName(), result);
+        }
+    }
+
+    /**
+     * Records a leaf validation.
+     *
+     * @param leaf validated leaf
+     * @param result validation result
+     */
+    public static void leaf(TreeNode leaf, boolean result) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("    [Leaf] {}: {}", leaf.getDesc(), result);
+        }
+    }
+
+    /**
+     * Records that a leaf is about to execute.
+     *
+     * @param leaf executed leaf
+     */
+    public static void execute(TreeNode leaf) {
+        var local = sink;
+        if (local != null) {
+            local.execute(leaf);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Executing leaf node: {}", leaf.getDesc());
+        }
+    }
+
+    /**
+     * Receiver of trace events. Called on the script thread during evaluation, so implementations should only
+     * record the event and defer any formatting or I/O.
+     */
+    public interface Sink {
+
+        /**
+         * @param node validated node
+         * @param active interlock that made a branch succeed, or {@code null}
+         * @param valid validation result
+         */
+        void branch(TreeNode node, Interlock active, boolean valid);
+
+        /**
+         * @param interlock evaluated interlock
+         * @param firstOut first permissive that was not met, or {@code null}
+         * @param active evaluation result
+         */
+        void interlock(Interlock interlock, Permissive firstOut, boolean active);
+
+        /**
+         * @param leaf executed leaf
+         */
+        void execute(TreeNode leaf);
+    }
+}
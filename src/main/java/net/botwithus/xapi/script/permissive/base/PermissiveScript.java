@@ -6,8 +6,11 @@ import java.util.Map;
 import net.botwithus.scripts.Info;
 import net.botwithus.ui.workspace.Workspace;
 import net.botwithus.xapi.script.base.DelayableScript;
+import net.botwithus.xapi.script.permissive.TraceRecorder;
+import net.botwithus.xapi.script.permissive.TreeTrace;
 import net.botwithus.xapi.script.permissive.node.Branch;
 import net.botwithus.xapi.script.permissive.node.TreeNode;
+import net.botwithus.xapi.script.permissive.node.TreeProgram;
 import net.botwithus.xapi.script.permissive.node.leaf.ChainedActionLeaf;
 import net.botwithus.xapi.script.ui.BwuGraphicsContext;
 import net.botwithus.xapi.script.ui.interfaces.BuildableUI;
@@ -26,6 +29,8 @@ public abstract class PermissiveScript extends DelayableScript {
     private final Map<String, State> states = new HashMap<>();
 
     private ChainedActionLeaf activeChainedAction = null;
+    private TreeProgram program;
+    private TreeTrace.Sink registeredSink;
     
     // Time tracking for execution interval control
     private long lastExecutionTime = 0;
@@ -94,7 +99,7 @@ public abstract class PermissiveScript extends DelayableScript {
         }
 
         if (currentState != null) {
-            logger.debug("Current state: " + currentState.getName());
+            logger.debug("Current state: {}", currentState.getName());
         } else {
             logger.warn("No current state");
         }
@@ -102,7 +107,9 @@ public abstract class PermissiveScript extends DelayableScript {
         // If we have an active chained action, continue executing it
         if (activeChainedAction != null) {
             try {
-                logger.debug("Executing chained action: " + activeChainedAction.getDesc() + "(" + activeChainedAction.getProgress() + ")");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Executing chained action: {}({})", activeChainedAction.getDesc(), activeChainedAction.getProgress());
+                }
                 activeChainedAction.execute();
                 if (activeChainedAction.validate()) {
                     // Chain completed successfully
@@ -127,39 +134,44 @@ public abstract class PermissiveScript extends DelayableScript {
     }
 
     /**
-     * Traverses the tree, executes all nodes, and checks for ChainedActionLeaf nodes.
-     * If a ChainedActionLeaf is found and not validated, it becomes the active chained action.
+     * Selects the leaf for this tick through the compiled tree program and executes it. If the leaf is a
+     * ChainedActionLeaf, it becomes the active chained action instead.
      */
-    private void traverseAndExecute(TreeNode node) {
-        if (node == null) {
+    private void traverseAndExecute(TreeNode root) {
+        if (root == null) {
             logger.warn("Node is null, skipping tree traversal");
             return;
         }
-
-
-        // Continue traversal if not a leaf node
-        if (!node.isLeaf()) {
-            if (node.validate()) {
-                logger.info("[Node] \"" + node.getDesc() + "\" SUCCESS -> " + node.successNode().getDesc());
-                traverseAndExecute(node.successNode());
-            } else {
-                logger.info("[Node] \"" + node.getDesc() + "\" NOT_MET -> " + node.failureNode().getDesc());
-                traverseAndExecute(node.failureNode());
+        var local = program;
+        if (local == null || local.getRoot() != root || !local.isCurrent()) {
+            local = TreeProgram.compile(root);
+            program = local;
+            logger.debug("Compiled tree program for \"{}\" -> {} nodes", root.getDesc(), local.size());
+            registeredSink = null;
+        }
+        var sink = TreeTrace.getSink();
+        if (sink != registeredSink) {
+            // register with a recorder installed after the last compile too
+            registeredSink = sink;
+            if (sink instanceof TraceRecorder recorder) {
+                recorder.register(root);
             }
-        } else { // Execute the leaf node
-            try {
-                // Check if it's a ChainedActionLeaf that needs to become active
-                if (node instanceof ChainedActionLeaf chainedAction) {
-                    logger.info("Chained action found, setting as active: " + chainedAction.getDesc());
-                    activeChainedAction = chainedAction;
-                    return;
-                } else {
-                    logger.info("Executing leaf node: " + node.getDesc());
-                    node.execute();
-                }
-            } catch (Exception e) {
-                logger.error("Leaf node failed: " + e.getMessage(), e);
+        }
+        var node = local.select(logger);
+        if (node == null) {
+            return;
+        }
+        try {
+            // Check if it's a ChainedActionLeaf that needs to become active
+            if (node instanceof ChainedActionLeaf chainedAction) {
+                logger.info("Chained action found, setting as active: {}", chainedAction.getDesc());
+                activeChainedAction = chainedAction;
+            } else {
+                TreeTrace.execute(node);
+                node.execute();
             }
+        } catch (Exception e) {
+            logger.error("Leaf node failed: " + e.getMessage(), e);
         }
     }
 
@@ -9,6 +9,7 @@ import net.botwithus.xapi.script.permissive.serialization.TreeNodeJson;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class Branch extends TreeNode {
@@ -18,6 +19,7 @@ public class Branch extends TreeNode {
     private Callable<Interlock[]> interlocksC;
     private TreeNode successNode, failureNode;
     private Callable<TreeNode> successNodeC, failureNodeC;
+    private final AtomicInteger modifications = new AtomicInteger();
 
     public Branch (PermissiveScript script, String desc, Interlock... Interlocks) {
         super(script, desc);
@@ -132,6 +134,56 @@ public class Branch extends TreeNode {
         return failureNode;
     }
 
+    /**
+     * Records the outcome of an interlock evaluation done outside {@link #validate()}, as {@link TreeProgram} does.
+     *
+     * @param active first active interlock, or {@code null}
+     */
+    void recordValidation(Interlock active) {
+        activeInterlock = active;
+        setLatestValidate(active != null);
+    }
+
+    /**
+     * @return the interlock that made the last validation succeed, or {@code null}
+     */
+    public Interlock getActiveInterlock() {
+        return activeInterlock;
+    }
+
+    /**
+     * @return the interlocks as last resolved, without invoking the interlock callable
+     */
+    public Interlock[] getInterlocks() {
+        return interlocks;
+    }
+
+    boolean hasDynamicInterlocks() {
+        return interlocksC != null;
+    }
+
+    boolean hasDynamicSuccess() {
+        return successNodeC != null;
+    }
+
+    boolean hasDynamicFailure() {
+        return failureNodeC != null;
+    }
+
+    /**
+     * @return the success node as last resolved, without invoking the success callable
+     */
+    public TreeNode getStaticSuccess() {
+        return successNode;
+    }
+
+    /**
+     * @return the failure node as last resolved, without invoking the failure callable
+     */
+    public TreeNode getStaticFailure() {
+        return failureNode;
+    }
+
     public Interlock[] updateInterlocks() {
         if (interlocksC != null) {
             try {
@@ -233,6 +285,15 @@ public class Branch extends TreeNode {
     public void setChildrenNodes(TreeNode successNode, TreeNode failureNode) {
         this.successNode = successNode;
         this.failureNode = failureNode;
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * @return counter that changes whenever the static children of this branch are replaced, so compiled
+     * {@link TreeProgram}s can tell they are stale
+     */
+    int getModifications() {
+        return modifications.get();
     }
 
     @Override
@@ -1,6 +1,7 @@
 package net.botwithus.xapi.script.permissive.node;
 
 import net.botwithus.scripts.Script;
+import net.botwithus.xapi.script.permissive.TreeTrace;
 import net.botwithus.xapi.script.permissive.base.PermissiveScript;
 
 import java.util.concurrent.Callable;
@@ -73,7 +74,7 @@ public class LeafNode extends TreeNode {
 
     @Override
     public boolean validate() {
-        script.info("    [Leaf] " + getDesc() + ": " + validate);
+        TreeTrace.leaf(this, validate);
         return validate;
     }
 
@@ -2,6 +2,7 @@ package net.botwithus.xapi.script.permissive.node;
 
 import net.botwithus.scripts.Script;
 import net.botwithus.xapi.script.permissive.EvaluationResult;
+import net.botwithus.xapi.script.permissive.TreeTrace;
 import net.botwithus.xapi.script.permissive.base.PermissiveScript;
 import net.botwithus.xapi.script.permissive.interfaces.ITreeNode;
 import net.botwithus.xapi.script.permissive.serialization.TreeNodeJson;
@@ -11,7 +12,11 @@ import java.util.List;
 import java.util.concurrent.Callable;
 
 public abstract class TreeNode implements ITreeNode {
-    private EvaluationResult<Boolean> latestValidate = new EvaluationResult<>(false);
+    private static final int VALIDATE_EXPIRATION_TIME = 1200;
+
+    private boolean latestValidate;
+    private long latestValidateTime = System.currentTimeMillis();
+    private EvaluationResult<Boolean> latestValidateSnapshot;
     private String definedIn = "";
 
     protected PermissiveScript script;
@@ -62,7 +67,7 @@ public abstract class TreeNode implements ITreeNode {
         json.setNodeClass(getClass().getSimpleName());
         json.setDescription(getDesc());
         json.setDefinedIn(getDefinedIn());
-        json.setLastValidateResult(String.valueOf(latestValidate.getResult()));
+        json.setLastValidateResult(String.valueOf(latestValidate));
 
         // Handle success and failure nodes if they exist
         TreeNode success = successNode();
@@ -109,15 +114,11 @@ public abstract class TreeNode implements ITreeNode {
         var validate = this.validate();
         this.setLatestValidate(validate);
         if (!this.isLeaf()) {
-            var msg = "[TreeNodeBranch] " + (!this.getDesc().isEmpty() ? this.getDesc() : this.getClass().getSimpleName()) + ": " + validate;
-//            script.getLogger().info(msg);
-            script.println(msg);
-            if (validate) {
-                this.successNode().traverse();
-            } else {
-                this.failureNode().traverse();
-            }
+            var next = validate ? this.successNode() : this.failureNode();
+            TreeTrace.branch(this, validate, next);
+            next.traverse();
         } else {
+            TreeTrace.execute(this);
             try {
                 this.execute();
             } catch (Exception e) {
@@ -126,12 +127,31 @@ public abstract class TreeNode implements ITreeNode {
         }
     }
 
+    /**
+     * Returns the latest validation as a result object, created on first request and reused until the node is
+     * validated again.
+     *
+     * @return latest validation
+     */
     public EvaluationResult<Boolean> getLatestValidate() {
+        var local = latestValidateSnapshot;
+        if (local == null) {
+            latestValidateSnapshot = local = new EvaluationResult<>(latestValidate, VALIDATE_EXPIRATION_TIME, latestValidateTime);
+        }
+        return local;
+    }
+
+    /**
+     * @return value of the latest validation, {@code false} before the first one
+     */
+    public boolean getLatestValidateValue() {
         return latestValidate;
     }
 
     public void setLatestValidate(boolean lastLoopValidate) {
-        this.latestValidate = new EvaluationResult<>(lastLoopValidate, 1200);
+        this.latestValidate = lastLoopValidate;
+        this.latestValidateTime = System.currentTimeMillis();
+        this.latestValidateSnapshot = null;
     }
 
     /**
@@ -0,0 +1,248 @@
+package net.botwithus.xapi.script.permissive.node;
+
+import net.botwithus.xapi.script.permissive.Interlock;
+import net.botwithus.xapi.script.permissive.TreeTrace;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A permissive tree flattened into a node table, evaluated by a single loop instead of recursive traversal.
+ * <p>
+ * Every reachable node gets a slot holding its kind, the slots of its success and failure children and the range
+ * of its interlocks in one shared interlock array. Children and interlocks given as plain values are linked once
+ * at compile time. Children supplied by a {@code Callable} are marked dynamic: the callable is still invoked on
+ * every visit, but the node it returns is compiled once and found again by identity on later ticks. Only nodes
+ * whose class is exactly {@link Branch} are linked this way; subclasses of {@code Branch} may override
+ * {@code validate}, {@code successNode} or {@code failureNode}, so they are opaque like any other node that is not
+ * a leaf and are evaluated through those methods on every visit.
+ * <p>
+ * A program is bound to the tree structure it was compiled from; {@link #isCurrent()} turns false once the static
+ * children of one of its own branches are replaced, and the owner recompiles it. Changes to other trees leave it
+ * current.
+ */
+public final class TreeProgram {
+
+    private static final int NONE = -1;
+    private static final int DYNAMIC = -2;
+    private static final byte LEAF = 0;
+    private static final byte BRANCH = 1;
+    private static final byte OPAQUE = 2;
+    private static final int MAX_STEPS = 10_000;
+    private static final int MAX_DYNAMIC_NODES = 1024;
+
+    private final TreeNode root;
+    private final Map<TreeNode, Integer> slots = new IdentityHashMap<>();
+    private TreeNode[] nodes = new TreeNode[16];
+    private byte[] kinds = new byte[16];
+    private int[] success = new int[16];
+    private int[] failure = new int[16];
+    private int[] interlockFrom = new int[16];
+    private int[] interlockTo = new int[16];
+    private int[] modifications = new int[16];
+    private Interlock[] interlocks = new Interlock[16];
+    private int size;
+    private int interlockCount;
+    private final int staticSize;
+    private final int staticInterlockCount;
+
+    private TreeProgram(TreeNode root) {
+        this.root = root;
+        if (root != null) {
+            link(root);
+        }
+        this.staticSize = size;
+        this.staticInterlockCount = interlockCount;
+    }
+
+    /**
+     * Compiles the tree below a root node.
+     *
+     * @param root root of the tree, may be {@code null}
+     * @return program evaluating the tree
+     */
+    public static TreeProgram compile(TreeNode root) {
+        return new TreeProgram(root);
+    }
+
+    /**
+     * @return the root node the program was compiled from
+     */
+    public TreeNode getRoot() {
+        return root;
+    }
+
+    /**
+     * @return number of compiled nodes, including nodes reached through callables so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Compares the modification count of every compiled branch with the count it was linked at, one read per
+     * branch.
+     *
+     * @return false once the static children of a compiled branch changed after compilation
+     */
+    public boolean isCurrent() {
+        for (int slot = 0; slot < size; slot++) {
+            if (kinds[slot] == BRANCH && ((Branch) nodes[slot]).getModifications() != modifications[slot]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Walks the tree from the root, validating branches, and returns the leaf that should run this tick.
+     *
+     * @param logger logger receiving warnings about the walk; branch decisions go to {@link TreeTrace}
+     * @return the selected leaf, or {@code null} when the walk ended on a missing node
+     */
+    public TreeNode select(Logger logger) {
+        if (size > staticSize + MAX_DYNAMIC_NODES) {
+            truncateDynamic();
+        }
+        int slot = root == null ? NONE : 0;
+        for (int steps = 0; steps < MAX_STEPS; steps++) {
+            if (slot < 0) {
+                logger.warn("Node is null, skipping tree traversal");
+                return null;
+            }
+            var node = nodes[slot];
+            if (kinds[slot] == LEAF) {
+                return node;
+            }
+            boolean valid = kinds[slot] == BRANCH && interlockFrom[slot] >= 0 ? validate((Branch) node, slot) : node.validate();
+            int next = valid ? success[slot] : failure[slot];
+            TreeNode child;
+            if (next == DYNAMIC) {
+                child = valid ? node.successNode() : node.failureNode();
+                next = child == null ? NONE : link(child);
+            } else {
+                child = next >= 0 ? nodes[next] : null;
+            }
+            TreeTrace.branch(node, valid, child);
+            slot = next;
+        }
+        logger.warn("Tree traversal exceeded {} steps, the tree probably contains a cycle", MAX_STEPS);
+        return null;
+    }
+
+    private boolean validate(Branch branch, int slot) {
+        int from = interlockFrom[slot], to = interlockTo[slot];
+        if (from == to) {
+            return false;
+        }
+        Interlock active = null;
+        for (int i = from; i < to; i++) {
+            if (interlocks[i].isActive()) {
+                active = interlocks[i];
+                break;
+            }
+        }
+        branch.recordValidation(active);
+        return active != null;
+    }
+
+    /**
+     * Returns the slot of a node, compiling it and everything statically reachable from it on first sight.
+     */
+    private int link(TreeNode start) {
+        var known = slots.get(start);
+        if (known != null) {
+            return known;
+        }
+        int startSlot = allocate(start);
+        var pending = new ArrayDeque<Integer>();
+        pending.push(startSlot);
+        while (!pending.isEmpty()) {
+            int slot = pending.pop();
+            var node = nodes[slot];
+            if (node.isLeaf()) {
+                kinds[slot] = LEAF;
+                success[slot] = failure[slot] = NONE;
+                continue;
+            }
+            if (node.getClass() != Branch.class) {
+                kinds[slot] = OPAQUE;
+                success[slot] = failure[slot] = DYNAMIC;
+                interlockFrom[slot] = interlockTo[slot] = NONE;
+                continue;
+            }
+            var branch = (Branch) node;
+            kinds[slot] = BRANCH;
+            modifications[slot] = branch.getModifications();
+            if (branch.hasDynamicInterlocks()) {
+                interlockFrom[slot] = interlockTo[slot] = NONE;
+            } else {
+                var own = branch.getInterlocks();
+                interlockFrom[slot] = interlockCount;
+                if (own != null) {
+                    for (var interlock : own) {
+                        if (interlock != null) {
+                            appendInterlock(interlock);
+                        }
+                    }
+                }
+                interlockTo[slot] = interlockCount;
+            }
+            success[slot] = branch.hasDynamicSuccess() ? DYNAMIC : child(branch.getStaticSuccess(), pending);
+            failure[slot] = branch.hasDynamicFailure() ? DYNAMIC : child(branch.getStaticFailure(), pending);
+        }
+        return startSlot;
+    }
+
+    private int child(TreeNode node, ArrayDeque<Integer> pending) {
+        if (node == null) {
+            return NONE;
+        }
+        var known = slots.get(node);
+        if (known != null) {
+            return known;
+        }
+        int slot = allocate(node);
+        pending.push(slot);
+        return slot;
+    }
+
+    private int allocate(TreeNode node) {
+        if (size == nodes.length) {
+            int capacity = size * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            success = Arrays.copyOf(success, capacity);
+            failure = Arrays.copyOf(failure, capacity);
+            interlockFrom = Arrays.copyOf(interlockFrom, capacity);
+            interlockTo = Arrays.copyOf(interlockTo, capacity);
+            modifications = Arrays.copyOf(modifications, capacity);
+        }
+        nodes[size] = node;
+        slots.put(node, size);
+        return size++;
+    }
+
+    private void appendInterlock(Interlock interlock) {
+        if (interlockCount == interlocks.length) {
+            interlocks = Arrays.copyOf(interlocks, interlockCount * 2);
+        }
+        interlocks[interlockCount++] = interlock;
+    }
+
+    /**
+     * Drops the nodes compiled from callable results, for trees whose callables build new nodes every tick.
+     */
+    private void truncateDynamic() {
+        for (int slot = staticSize; slot < size; slot++) {
+            slots.remove(nodes[slot]);
+            nodes[slot] = null;
+        }
+        Arrays.fill(interlocks, staticInterlockCount, interlockCount, null);
+        size = staticSize;
+        interlockCount = staticInterlockCount;
+    }
+}
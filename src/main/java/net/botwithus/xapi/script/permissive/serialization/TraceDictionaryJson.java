@@ -0,0 +1,29 @@
+package net.botwithus.xapi.script.permissive.serialization;
+
+import java.util.List;
+
+/**
+ * JSON representation of the ids a trace recorder assigned to the nodes and interlocks of a tree.
+ * A node or interlock id is its index in the matching list; nodes carry no children.
+ */
+public class TraceDictionaryJson {
+    private List<TreeNodeJson> nodes;           // Nodes by id
+    private List<InterlockJson> interlocks;     // Interlocks by id, with their permissives in order
+
+    // Getters and setters
+    public List<TreeNodeJson> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(List<TreeNodeJson> nodes) {
+        this.nodes = nodes;
+    }
+
+    public List<InterlockJson> getInterlocks() {
+        return interlocks;
+    }
+
+    public void setInterlocks(List<InterlockJson> interlocks) {
+        this.interlocks = interlocks;
+    }
+}